@@ -0,0 +1,126 @@
+package net.ultragrav.serializer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk primitive array codecs. The {@code bytes} secondary result is the payload
+ * throughput in bytes per second, divide by 1e9 for GB/s.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ArrayCodecBenchmark {
+    @Param({"256", "65536"})
+    public int length;
+
+    private int[] ints;
+    private long[] longs;
+    private double[] doubles;
+
+    private GravSerializer out;
+    private GravSerializer intsIn;
+    private GravSerializer longsIn;
+    private GravSerializer doublesIn;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Throughput {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        Random random = new Random(length);
+        ints = random.ints(length).toArray();
+        longs = random.longs(length).toArray();
+        doubles = random.doubles(length).toArray();
+
+        out = new GravSerializer();
+        intsIn = new GravSerializer();
+        intsIn.writeIntArray(ints);
+        longsIn = new GravSerializer();
+        longsIn.writeLongArray(longs);
+        doublesIn = new GravSerializer();
+        doublesIn.writeDoubleArray(doubles);
+    }
+
+    @Benchmark
+    public GravSerializer writeIntArray(Throughput throughput) {
+        out.setWritePosition(0);
+        out.writeIntArray(ints);
+        throughput.bytes += length * 4L;
+        return out;
+    }
+
+    /**
+     * The element by element loop the int[] serializer used before the bulk codecs.
+     */
+    @Benchmark
+    public GravSerializer writeIntLoop(Throughput throughput) {
+        out.setWritePosition(0);
+        out.writeInt(ints.length);
+        for (int i : ints) {
+            out.writeInt(i);
+        }
+        throughput.bytes += length * 4L;
+        return out;
+    }
+
+    @Benchmark
+    public int[] readIntArray(Throughput throughput) {
+        intsIn.setReadPosition(0);
+        throughput.bytes += length * 4L;
+        return intsIn.readIntArray();
+    }
+
+    @Benchmark
+    public int[] readIntLoop(Throughput throughput) {
+        intsIn.setReadPosition(0);
+        int[] arr = new int[intsIn.readInt()];
+        for (int i = 0; i < arr.length; i++) {
+            arr[i] = intsIn.readInt();
+        }
+        throughput.bytes += length * 4L;
+        return arr;
+    }
+
+    @Benchmark
+    public GravSerializer writeLongArray(Throughput throughput) {
+        out.setWritePosition(0);
+        out.writeLongArray(longs);
+        throughput.bytes += length * 8L;
+        return out;
+    }
+
+    @Benchmark
+    public long[] readLongArray(Throughput throughput) {
+        longsIn.setReadPosition(0);
+        throughput.bytes += length * 8L;
+        return longsIn.readLongArray();
+    }
+
+    @Benchmark
+    public GravSerializer writeDoubleArray(Throughput throughput) {
+        out.setWritePosition(0);
+        out.writeDoubleArray(doubles);
+        throughput.bytes += length * 8L;
+        return out;
+    }
+
+    @Benchmark
+    public double[] readDoubleArray(Throughput throughput) {
+        doublesIn.setReadPosition(0);
+        throughput.bytes += length * 8L;
+        return doublesIn.readDoubleArray();
+    }
+}
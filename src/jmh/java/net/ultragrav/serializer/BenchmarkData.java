@@ -0,0 +1,207 @@
+package net.ultragrav.serializer;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Shared fixtures for the benchmarks.
+ */
+public class BenchmarkData {
+    private static final String[] GAMES = {"Bedwars", "Skywars", "Duels", "BuildBattle", "MurderMystery", "Arcade"};
+
+    public static class Position implements GravSerializable {
+        private final double x, y, z;
+
+        public Position(double x, double y, double z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        @Override
+        public void serialize(GravSerializer serializer) {
+            serializer.writeDouble(x);
+            serializer.writeDouble(y);
+            serializer.writeDouble(z);
+        }
+
+        public static Position deserialize(GravSerializer serializer) {
+            return new Position(serializer.readDouble(), serializer.readDouble(), serializer.readDouble());
+        }
+    }
+
+    /**
+     * A representative value for one of the built-in serializer types. Arrays and collections hold 64 elements.
+     */
+    public static Object sample(String type) {
+        Random random = new Random(type.hashCode());
+        switch (type) {
+            case "String":
+                return "favorite_slots_" + random.nextInt();
+            case "byte[]": {
+                byte[] arr = new byte[64];
+                random.nextBytes(arr);
+                return arr;
+            }
+            case "Byte":
+                return (byte) random.nextInt();
+            case "Double":
+                return random.nextDouble();
+            case "Integer":
+                return random.nextInt();
+            case "Long":
+                return random.nextLong();
+            case "UUID":
+                return new UUID(random.nextLong(), random.nextLong());
+            case "Map": {
+                Map<String, Integer> map = new HashMap<>();
+                for (int i = 0; i < 64; i++) {
+                    map.put("key" + i, i);
+                }
+                return map;
+            }
+            case "Map.Entry":
+                return new AbstractMap.SimpleEntry<>("kills", 1234);
+            case "List": {
+                List<Integer> list = new ArrayList<>();
+                for (int i = 0; i < 64; i++) {
+                    list.add(random.nextInt());
+                }
+                return list;
+            }
+            case "Enum":
+                return TimeUnit.SECONDS;
+            case "GravSerializable":
+                return new Position(random.nextDouble(), random.nextDouble(), random.nextDouble());
+            case "int[]": {
+                int[] arr = new int[64];
+                for (int i = 0; i < arr.length; i++) arr[i] = random.nextInt();
+                return arr;
+            }
+            case "Object[]": {
+                String[] arr = new String[64];
+                for (int i = 0; i < arr.length; i++) arr[i] = "value" + i;
+                return arr;
+            }
+            case "Boolean":
+                return random.nextBoolean();
+            case "boolean[]": {
+                boolean[] arr = new boolean[64];
+                for (int i = 0; i < arr.length; i++) arr[i] = random.nextBoolean();
+                return arr;
+            }
+            case "long[]": {
+                long[] arr = new long[64];
+                for (int i = 0; i < arr.length; i++) arr[i] = random.nextLong();
+                return arr;
+            }
+            case "short[]": {
+                short[] arr = new short[64];
+                for (int i = 0; i < arr.length; i++) arr[i] = (short) random.nextInt();
+                return arr;
+            }
+            case "Short":
+                return (short) random.nextInt();
+            case "Float":
+                return random.nextFloat();
+            case "float[]": {
+                float[] arr = new float[64];
+                for (int i = 0; i < arr.length; i++) arr[i] = random.nextFloat();
+                return arr;
+            }
+            case "double[]": {
+                double[] arr = new double[64];
+                for (int i = 0; i < arr.length; i++) arr[i] = random.nextDouble();
+                return arr;
+            }
+            case "Character":
+                return 'x';
+            case "char[]":
+                return "the quick brown fox jumps over the lazy dog".toCharArray();
+            case "AtomicBoolean":
+                return new AtomicBoolean(true);
+            case "AtomicInteger":
+                return new AtomicInteger(random.nextInt());
+            case "AtomicIntegerArray": {
+                AtomicIntegerArray arr = new AtomicIntegerArray(64);
+                for (int i = 0; i < arr.length(); i++) arr.set(i, random.nextInt());
+                return arr;
+            }
+            case "AtomicLong":
+                return new AtomicLong(random.nextLong());
+            case "AtomicLongArray": {
+                AtomicLongArray arr = new AtomicLongArray(64);
+                for (int i = 0; i < arr.length(); i++) arr.set(i, random.nextLong());
+                return arr;
+            }
+            case "AtomicReference":
+                return new AtomicReference<>("referenced");
+            case "Set": {
+                Set<String> set = new HashSet<>();
+                for (int i = 0; i < 64; i++) set.add("member" + i);
+                return set;
+            }
+            case "JsonMeta":
+                return gameStats(random);
+            case "BigInteger":
+                return new BigInteger(256, random);
+            case "BigDecimal":
+                return new BigDecimal(new BigInteger(256, random), 12);
+            default:
+                throw new IllegalArgumentException("Unknown type: " + type);
+        }
+    }
+
+    /**
+     * A player profile similar to what we keep in production: a few top level fields, one stats
+     * sub-document per game and a list of match history sub-documents.
+     *
+     * @param history Number of match history entries
+     */
+    public static JsonMeta profile(int history) {
+        Random random = new Random(history);
+        JsonMeta meta = new JsonMeta();
+        meta.set("uuid", new UUID(random.nextLong(), random.nextLong()));
+        meta.set("name", "Player" + random.nextInt(100000));
+        meta.set("rank", "MVP_PLUS");
+        meta.set("firstLogin", System.currentTimeMillis() - random.nextInt(1000000000));
+        meta.set("lastLogin", System.currentTimeMillis());
+        meta.set("settings.chat.visible", true);
+        meta.set("settings.chat.colour", "GOLD");
+        meta.set("settings.language", "en_US");
+
+        for (String game : GAMES) {
+            meta.set("stats." + game, gameStats(random));
+        }
+
+        List<JsonMeta> matches = new ArrayList<>();
+        for (int i = 0; i < history; i++) {
+            JsonMeta match = new JsonMeta();
+            match.set("game", GAMES[random.nextInt(GAMES.length)]);
+            match.set("kills", random.nextInt(20));
+            match.set("deaths", random.nextInt(20));
+            match.set("won", random.nextBoolean());
+            match.set("duration", random.nextLong() & 0xFFFFF);
+            matches.add(match);
+        }
+        meta.set("history", matches);
+        return meta;
+    }
+
+    private static JsonMeta gameStats(Random random) {
+        JsonMeta stats = new JsonMeta();
+        stats.set("kills", random.nextInt(100000));
+        stats.set("deaths", random.nextInt(100000));
+        stats.set("wins", random.nextInt(10000));
+        stats.set("losses", random.nextInt(10000));
+        stats.set("experience", random.nextLong() & 0xFFFFFFFL);
+        stats.set("coins", random.nextDouble() * 1000000);
+        stats.set("winstreak", random.nextInt(50));
+        stats.set("favorite_slots", "1,2,3,4,5,6,7,8,9");
+        stats.set("quickbuy", new int[]{1, 5, 7, 12, 18, 22, 30, 31, 40});
+        return stats;
+    }
+}
@@ -0,0 +1,47 @@
+package net.ultragrav.serializer;
+
+import net.ultragrav.serializer.compressors.StandardCompressor;
+import net.ultragrav.serializer.compressors.ZstdCompressor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Both compressors over a serialized profile document.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CompressorBenchmark {
+    @Param({"standard", "zstd"})
+    public String compressor;
+
+    @Param({"10", "1000"})
+    public int history;
+
+    private Compressor instance;
+    private byte[] raw;
+    private byte[] compressed;
+
+    @Setup
+    public void setup() {
+        instance = compressor.equals("zstd") ? ZstdCompressor.instance : StandardCompressor.instance;
+
+        GravSerializer serializer = new GravSerializer();
+        BenchmarkData.profile(history).serialize(serializer);
+        raw = serializer.toByteArray();
+        compressed = instance.compress(raw);
+    }
+
+    @Benchmark
+    public byte[] compress() {
+        return instance.compress(raw);
+    }
+
+    @Benchmark
+    public byte[] decompress() {
+        return instance.decompress(compressed);
+    }
+}
@@ -0,0 +1,49 @@
+package net.ultragrav.serializer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of finding and invoking the deserialize method of a {@link GravSerializable}.
+ * <p>
+ * {@code reflective} is the lookup and invocation done on every call before the handles were cached,
+ * {@code cold} resolves the handles without the cache (once per class in practice) and {@code warm}
+ * is the steady state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DeserializationBenchmark {
+    private static final Class<?>[] ARGUMENT_TYPES = {GravSerializer.class};
+
+    private GravSerializer in;
+
+    @Setup
+    public void setup() {
+        in = new GravSerializer();
+        ((GravSerializable) BenchmarkData.sample("GravSerializable")).serialize(in);
+    }
+
+    @Benchmark
+    public Object reflective() throws Exception {
+        in.setReadPosition(0);
+        Method m = BenchmarkData.Position.class.getMethod("deserialize", ARGUMENT_TYPES);
+        return m.invoke(null, in);
+    }
+
+    @Benchmark
+    public Object cold() throws Throwable {
+        in.setReadPosition(0);
+        return DeserializationHandles.resolveExact(BenchmarkData.Position.class, ARGUMENT_TYPES).invokeMethod(new Object[]{in});
+    }
+
+    @Benchmark
+    public Object warm() {
+        in.setReadPosition(0);
+        return GravSerializable.deserialize(BenchmarkData.Position.class, in);
+    }
+}
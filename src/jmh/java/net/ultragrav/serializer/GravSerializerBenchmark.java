@@ -0,0 +1,106 @@
+package net.ultragrav.serializer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Raw primitive throughput of {@link GravSerializer}. Each invocation writes or reads
+ * {@link #COUNT} values so the per-call overhead of JMH doesn't dominate.
+ * <p>
+ * Run with {@code -prof gc} to see the allocation rate of the primitive paths.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GravSerializerBenchmark {
+    private static final int COUNT = 1024;
+
+    private GravSerializer out;
+    private GravSerializer ints;
+    private GravSerializer longs;
+    private GravSerializer strings;
+
+    private String[] keys;
+
+    @Setup
+    public void setup() {
+        out = new GravSerializer();
+        ints = new GravSerializer();
+        longs = new GravSerializer();
+        strings = new GravSerializer();
+
+        keys = new String[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            keys[i] = "stats.Bedwars.key_" + i;
+            ints.writeInt(i * 31);
+            longs.writeLong(i * 0x9E3779B97F4A7C15L);
+            strings.writeString(keys[i]);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public GravSerializer writeInt() {
+        out.setWritePosition(0);
+        for (int i = 0; i < COUNT; i++) {
+            out.writeInt(i);
+        }
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public int readInt() {
+        ints.setReadPosition(0);
+        int sum = 0;
+        for (int i = 0; i < COUNT; i++) {
+            sum += ints.readInt();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public GravSerializer writeLong() {
+        out.setWritePosition(0);
+        for (int i = 0; i < COUNT; i++) {
+            out.writeLong(i);
+        }
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public long readLong() {
+        longs.setReadPosition(0);
+        long sum = 0;
+        for (int i = 0; i < COUNT; i++) {
+            sum += longs.readLong();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public GravSerializer writeString() {
+        out.setWritePosition(0);
+        for (int i = 0; i < COUNT; i++) {
+            out.writeString(keys[i]);
+        }
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public int readString() {
+        strings.setReadPosition(0);
+        int len = 0;
+        for (int i = 0; i < COUNT; i++) {
+            len += strings.readString().length();
+        }
+        return len;
+    }
+}
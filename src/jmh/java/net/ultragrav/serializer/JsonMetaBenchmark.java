@@ -0,0 +1,175 @@
+package net.ultragrav.serializer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips of a realistic nested {@link JsonMeta} document (see {@link BenchmarkData#profile(int)}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JsonMetaBenchmark {
+    private static final JsonPath KILLS = JsonMeta.path("stats.Bedwars.kills");
+
+    /**
+     * Number of match history sub-documents in the profile.
+     */
+    @Param({"10", "1000"})
+    public int history;
+
+    private JsonMeta profile;
+    // A document with many independent subtrees
+    private JsonMeta guild;
+    private GravSerializer out;
+    private GravSerializer in;
+    private GravSerializer delta;
+
+    @Setup
+    public void setup() {
+        profile = BenchmarkData.profile(history);
+        guild = new JsonMeta();
+        for (int i = 0; i < 256; i++) {
+            guild.set("members.m" + i, BenchmarkData.profile(10));
+        }
+        out = new GravSerializer();
+        in = new GravSerializer();
+        profile.serialize(in);
+
+        JsonMeta changes = new JsonMeta();
+        changes.set("stats.Bedwars.kills", 5);
+        changes.set("lastLogin", System.currentTimeMillis());
+        delta = new GravSerializer();
+        changes.serialize(delta);
+    }
+
+    @Benchmark
+    public GravSerializer serialize() {
+        out.setWritePosition(0);
+        profile.serialize(out);
+        return out;
+    }
+
+    @Benchmark
+    public byte[] serializeToNewBuffer() {
+        GravSerializer serializer = new GravSerializer();
+        profile.serialize(serializer);
+        return serializer.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] serializeToPooledBuffer() {
+        try (GravSerializerPool.Lease lease = GravSerializerPool.shared().lease()) {
+            GravSerializer serializer = lease.serializer();
+            profile.serialize(serializer);
+            return serializer.toByteArray();
+        }
+    }
+
+    @Benchmark
+    public JsonMeta deserialize() {
+        in.setReadPosition(0);
+        return JsonMeta.deserialize(in);
+    }
+
+    @Benchmark
+    public JsonMeta deserializeWithoutValues() {
+        in.setReadPosition(0);
+        return JsonMeta.deserialize(in, false);
+    }
+
+    /**
+     * Reading a few fields, the common case {@link JsonMeta#deserializeLazy(GravSerializer)} is for.
+     */
+    @Benchmark
+    public Object readFields() {
+        in.setReadPosition(0);
+        JsonMeta meta = JsonMeta.deserialize(in);
+        return meta.<String>get("name").length() + meta.<Integer>get("stats.Bedwars.kills") + (long) meta.get("lastLogin");
+    }
+
+    @Benchmark
+    public Object readFieldsLazy() {
+        in.setReadPosition(0);
+        JsonMeta meta = JsonMeta.deserializeLazy(in);
+        return meta.<String>get("name").length() + meta.<Integer>get("stats.Bedwars.kills") + (long) meta.get("lastLogin");
+    }
+
+    @Benchmark
+    public Object readPaths() {
+        in.setReadPosition(0);
+        return JsonMeta.readPaths(in, "name", "stats.Bedwars.kills", "lastLogin");
+    }
+
+    /**
+     * Applying a delta by deserializing, {@link JsonMeta#putAll(JsonMeta)} and serializing again.
+     */
+    @Benchmark
+    public GravSerializer mergeByDeserializing() {
+        in.setReadPosition(0);
+        delta.setReadPosition(0);
+        JsonMeta meta = JsonMeta.deserialize(in);
+        meta.putAll(JsonMeta.deserialize(delta));
+        out.setWritePosition(0);
+        meta.serialize(out);
+        return out;
+    }
+
+    @Benchmark
+    public GravSerializer merge() {
+        in.setReadPosition(0);
+        delta.setReadPosition(0);
+        out.setWritePosition(0);
+        JsonMeta.merge(in, delta, out);
+        return out;
+    }
+
+    @Benchmark
+    public Object get() {
+        return profile.get("stats.Bedwars.kills");
+    }
+
+    @Benchmark
+    public JsonMeta set() {
+        return profile.set("stats.Bedwars.kills", 5);
+    }
+
+    @Benchmark
+    public Object getCompiled() {
+        return profile.get(KILLS);
+    }
+
+    @Benchmark
+    public JsonMeta setCompiled() {
+        return profile.set(KILLS, 5);
+    }
+
+    @Benchmark
+    public JsonMeta copyAfterSet() {
+        profile.set(KILLS, 5);
+        return profile.copy();
+    }
+
+    @Benchmark
+    public JsonMetaSnapshot snapshotAfterSet() {
+        profile.set(KILLS, 5);
+        return profile.snapshot();
+    }
+
+    @Benchmark
+    public GravSerializer serializeGuild() {
+        out.setWritePosition(0);
+        guild.serialize(out);
+        return out;
+    }
+
+    @Benchmark
+    public GravSerializer serializeGuildParallel() {
+        out.setWritePosition(0);
+        guild.serializeParallel(out);
+        return out;
+    }
+}
@@ -0,0 +1,50 @@
+package net.ultragrav.serializer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention on one shared {@link JsonMeta} document: a group of reader threads and a writer at
+ * a high read to write ratio. Size the group to the machine with {@code -tg}, for example
+ * {@code -tg 31,1} on 32 cores.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JsonMetaConcurrencyBenchmark {
+    private static final JsonPath KILLS = JsonMeta.path("stats.Bedwars.kills");
+    private static final JsonPath WINS = JsonMeta.path("stats.Skywars.wins");
+
+    @Param({"false", "true"})
+    public boolean sharedReads;
+
+    // 2 puts the read and written paths in different subtrees
+    @Param({"0", "2"})
+    public int subtreeLockDepth;
+
+    private JsonMeta profile;
+
+    @Setup
+    public void setup() {
+        profile = BenchmarkData.profile(10);
+        profile.setSharedReads(sharedReads);
+        profile.setSubtreeLocking(subtreeLockDepth);
+    }
+
+    @Benchmark
+    @Group("profile")
+    @GroupThreads(7)
+    public Object read() {
+        return profile.get(KILLS);
+    }
+
+    @Benchmark
+    @Group("profile")
+    @GroupThreads(1)
+    public JsonMeta write() {
+        return profile.set(WINS, 5);
+    }
+}
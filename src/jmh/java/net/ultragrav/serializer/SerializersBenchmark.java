@@ -0,0 +1,49 @@
+package net.ultragrav.serializer;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Type dispatch and encode/decode cost of every built-in serializer in {@link Serializers}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SerializersBenchmark {
+    @Param({
+            "String", "byte[]", "Byte", "Double", "Integer", "Long", "UUID", "Map", "Map.Entry", "List",
+            "Enum", "GravSerializable", "int[]", "Object[]", "Boolean", "boolean[]", "long[]", "short[]",
+            "Short", "Float", "float[]", "double[]", "Character", "char[]", "AtomicBoolean", "AtomicInteger",
+            "AtomicIntegerArray", "AtomicLong", "AtomicLongArray", "AtomicReference", "Set", "JsonMeta",
+            "BigInteger", "BigDecimal"
+    })
+    public String type;
+
+    private Object value;
+    private GravSerializer out;
+    private GravSerializer in;
+
+    @Setup
+    public void setup() {
+        value = BenchmarkData.sample(type);
+        out = new GravSerializer();
+        in = new GravSerializer();
+        Serializers.serializeObject(in, value);
+    }
+
+    @Benchmark
+    public GravSerializer serializeObject() {
+        out.setWritePosition(0);
+        Serializers.serializeObject(out, value);
+        return out;
+    }
+
+    @Benchmark
+    public Object deserializeObject() {
+        in.setReadPosition(0);
+        return Serializers.deserializeObject(in);
+    }
+}
@@ -0,0 +1,102 @@
+package net.ultragrav.serializer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Class names seen so far in one scope of a {@link GravSerializer}, see
+ * {@link GravSerializer#setClassNameInterning(boolean)}.
+ * <p>
+ * The writer assigns ids in the order names are first written, the reader assigns
+ * them in the order the definitions are read, so both sides agree without the
+ * table ever being written out. Writing and reading use separate tables, so a serializer that
+ * is read from while it is written to keeps both sides in step.
+ */
+final class ClassNameTable {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<Class<?>> classes = new ArrayList<>();
+    // Write position of each definition, only kept by writers
+    private long[] positions = null;
+    // JsonMeta keys share the scope, see GravSerializer#setKeyInterning(boolean)
+    private ClassNameTable keys = null;
+
+    /**
+     * @return The id of the name, or -1 if it has not been written in this scope yet
+     */
+    int idOf(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    int add(String name) {
+        int id = names.size();
+        ids.put(name, id);
+        names.add(name);
+        classes.add(null);
+        return id;
+    }
+
+    /**
+     * Add a name that is defined at write position {@code position}.
+     */
+    int add(String name, long position) {
+        int id = add(name);
+        if (positions == null) {
+            positions = new long[8];
+        } else if (id == positions.length) {
+            positions = Arrays.copyOf(positions, id * 2);
+        }
+        positions[id] = position;
+        return id;
+    }
+
+    /**
+     * Forget the first name defined at or after write position {@code from} and all names after
+     * it, if that first one was defined before {@code to}. Ids are positional, so a definition
+     * can't be dropped without the ones that follow it. Keys are truncated the same way.
+     */
+    void truncate(long from, long to) {
+        if (keys != null) {
+            keys.truncate(from, to);
+        }
+        if (positions == null)
+            return;
+        int first = names.size();
+        while (first > 0 && positions[first - 1] >= from) {
+            first--;
+        }
+        if (first == names.size() || positions[first] >= to)
+            return;
+        for (int i = names.size() - 1; i >= first; i--) {
+            ids.remove(names.remove(i));
+            classes.remove(i);
+        }
+    }
+
+    String name(int id) {
+        if (id < 0 || id >= names.size()) {
+            throw new ObjectDeserializationException("Invalid name reference: " + id,
+                    ObjectDeserializationException.DeserializationExceptionCause.INTERNAL);
+        }
+        return names.get(id);
+    }
+
+    Class<?> resolved(int id) {
+        return classes.get(id);
+    }
+
+    void setResolved(int id, Class<?> clazz) {
+        classes.set(id, clazz);
+    }
+
+    ClassNameTable keys() {
+        if (keys == null) {
+            keys = new ClassNameTable();
+        }
+        return keys;
+    }
+}
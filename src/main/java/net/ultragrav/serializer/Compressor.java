@@ -1,6 +1,50 @@
 package net.ultragrav.serializer;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 public interface Compressor {
     byte[] compress(byte[] in);
     byte[] decompress(byte[] in) throws DecompressionException;
+
+    /**
+     * A stream that compresses everything written to it into {@code out}, in the same format as
+     * {@link #compress(byte[])}. Closing it closes {@code out}.
+     * <p>
+     * The default implementation buffers all data and compresses it when closed.
+     */
+    default OutputStream compress(OutputStream out) throws IOException {
+        return new ByteArrayOutputStream() {
+            private boolean closed = false;
+
+            @Override
+            public void close() throws IOException {
+                if (closed)
+                    return;
+                closed = true;
+                out.write(Compressor.this.compress(toByteArray()));
+                out.close();
+            }
+        };
+    }
+
+    /**
+     * A stream that decompresses data written by {@link #compress(byte[])} from {@code in}.
+     * Closing it closes {@code in}.
+     * <p>
+     * The default implementation reads and decompresses everything at once.
+     */
+    default InputStream decompress(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[2048];
+        int i;
+        while ((i = in.read(buffer)) != -1) {
+            out.write(buffer, 0, i);
+        }
+        in.close();
+        return new ByteArrayInputStream(decompress(out.toByteArray()));
+    }
 }
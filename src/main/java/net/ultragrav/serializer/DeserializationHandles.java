@@ -0,0 +1,278 @@
+package net.ultragrav.serializer;
+
+import net.ultragrav.serializer.util.ReflectionUtil;
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Cache of the static {@code deserialize} methods and constructors used to deserialize
+ * {@link GravSerializable}, {@link MetaSerializable} and {@link JsonMetaSerializable} objects.
+ * <p>
+ * Entry points are resolved once per class and argument shape, after that deserialization
+ * does no reflective lookups.
+ */
+final class DeserializationHandles {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final ClassValue<ClassHandles> CLASSES = new ClassValue<ClassHandles>() {
+        @Override
+        protected ClassHandles computeValue(Class<?> type) {
+            return new ClassHandles(type);
+        }
+    };
+
+    private DeserializationHandles() {
+    }
+
+    /**
+     * The resolved entry points of one class for one argument shape.
+     */
+    static final class Handles {
+        /**
+         * Static deserialize method, or null.
+         */
+        final Invoker method;
+        /**
+         * A matching deserialize method exists, but it is not static.
+         */
+        final boolean methodNonStatic;
+        /**
+         * Constructor, or null.
+         */
+        final Invoker constructor;
+        /**
+         * Why there is no constructor, if one was found but could not be used.
+         */
+        final Throwable constructorError;
+
+        private Handles(Invoker method, boolean methodNonStatic, Invoker constructor, Throwable constructorError) {
+            this.method = method;
+            this.methodNonStatic = methodNonStatic;
+            this.constructor = constructor;
+            this.constructorError = constructorError;
+        }
+
+        Object invokeMethod(Object[] args) throws Throwable {
+            return method.invoke(args);
+        }
+
+        Object invokeConstructor(Object[] args) throws Throwable {
+            return constructor.invoke(args);
+        }
+    }
+
+    private interface Invoker {
+        Object invoke(Object[] args) throws Throwable;
+    }
+
+    /**
+     * Which deserialization path a class takes, see {@link GravSerializable#deserialize(Class, GravSerializer, Object...)}.
+     */
+    enum Kind {
+        GRAV_SERIALIZABLE,
+        META_SERIALIZABLE,
+        JSON_META_SERIALIZABLE
+    }
+
+    private static final class ClassHandles {
+        // Negative interface checks are not cached by the JVM, so this is noticeably cheaper than isAssignableFrom
+        private final Kind kind;
+
+        // Exact parameter type matching, used for plain GravSerializables
+        private final Shapes exact = new Shapes();
+        // Compatible (instanceof) parameter matching, used for Meta and JsonMeta serializables
+        private final Shapes compatible = new Shapes();
+
+        private ClassHandles(Class<?> clazz) {
+            if (MetaSerializable.class.isAssignableFrom(clazz)) {
+                kind = Kind.META_SERIALIZABLE;
+            } else if (JsonMetaSerializable.class.isAssignableFrom(clazz)) {
+                kind = Kind.JSON_META_SERIALIZABLE;
+            } else {
+                kind = Kind.GRAV_SERIALIZABLE;
+            }
+        }
+    }
+
+    private static final class Shapes {
+        // Most calls have no extra arguments, the last such shape skips the map lookup
+        private volatile Single single;
+
+        private final Map<Shape, Handles> shapes = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * A single argument shape with its handles, replaced as a whole so readers never see the
+     * handles of another shape.
+     */
+    private static final class Single {
+        private final Class<?> type;
+        private final Handles handles;
+
+        private Single(Class<?> type, Handles handles) {
+            this.type = type;
+            this.handles = handles;
+        }
+    }
+
+    private static final class Shape {
+        private final Class<?>[] types;
+        private final int hash;
+
+        private Shape(Class<?>[] types) {
+            this.types = types;
+            this.hash = Arrays.hashCode(types);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Shape && Arrays.equals(types, ((Shape) o).types);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    static Kind kind(Class<?> clazz) {
+        return CLASSES.get(clazz).kind;
+    }
+
+    /**
+     * Handles for a public static {@code deserialize} method and a declared constructor whose
+     * parameter types are exactly {@code types}.
+     */
+    static Handles exact(Class<?> clazz, Class<?>[] types) {
+        Shapes shapes = CLASSES.get(clazz).exact;
+        if (types.length == 1) {
+            Single single = shapes.single;
+            if (single != null && single.type == types[0]) {
+                return single.handles;
+            }
+        }
+        Handles handles = shapes.shapes.computeIfAbsent(new Shape(types), s -> resolveExact(clazz, s.types));
+        if (types.length == 1) {
+            shapes.single = new Single(types[0], handles);
+        }
+        return handles;
+    }
+
+    /**
+     * Handles for the first public {@code deserialize} method and public constructor that accept
+     * {@code args}, see {@link ReflectionUtil#getCompatibleMethod(Class, String, Object...)}.
+     */
+    static Handles compatible(Class<?> clazz, Object[] args) {
+        Class<?>[] types = new Class<?>[args.length];
+        for (int i = 0; i < args.length; i++) {
+            types[i] = args[i] == null ? null : args[i].getClass();
+        }
+
+        Shapes shapes = CLASSES.get(clazz).compatible;
+        if (types.length == 1) {
+            Single single = shapes.single;
+            if (single != null && single.type == types[0]) {
+                return single.handles;
+            }
+        }
+        Handles handles = shapes.shapes.computeIfAbsent(new Shape(types), s -> resolveCompatible(clazz, args));
+        if (types.length == 1) {
+            shapes.single = new Single(types[0], handles);
+        }
+        return handles;
+    }
+
+    /**
+     * Uncached version of {@link #exact(Class, Class[])}.
+     */
+    static Handles resolveExact(Class<?> clazz, Class<?>[] types) {
+        Method method = null;
+        for (Method m : clazz.getMethods()) {
+            if (m.getName().equals("deserialize") && Arrays.equals(m.getParameterTypes(), types)) {
+                method = m;
+                break;
+            }
+        }
+
+        Constructor<?> constructor = null;
+        for (Constructor<?> c : clazz.getDeclaredConstructors()) {
+            if (Arrays.equals(c.getParameterTypes(), types)) {
+                constructor = c;
+                break;
+            }
+        }
+
+        return resolve(method, constructor, types.length);
+    }
+
+    /**
+     * Uncached version of {@link #compatible(Class, Object[])}.
+     */
+    static Handles resolveCompatible(Class<?> clazz, Object[] args) {
+        Method method = ReflectionUtil.getCompatibleMethod(clazz, "deserialize", args);
+        Constructor<?> constructor = ReflectionUtil.getCompatibleConstructor(clazz, args);
+        return resolve(method, constructor, args.length);
+    }
+
+    private static Handles resolve(Method method, Constructor<?> constructor, int arity) {
+        Invoker methodHandle = null;
+        boolean nonStatic = false;
+        if (method != null) {
+            if (!Modifier.isStatic(method.getModifiers())) {
+                nonStatic = true;
+            } else {
+                try {
+                    methodHandle = invoker(LOOKUP.unreflect(method), arity);
+                } catch (IllegalAccessException e) {
+                    // Same as a failed invocation, fall back to the constructor
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        Invoker constructorHandle = null;
+        Throwable constructorError = null;
+        if (constructor != null) {
+            try {
+                constructorHandle = invoker(LOOKUP.unreflectConstructor(constructor), arity);
+            } catch (IllegalAccessException e) {
+                constructorError = e;
+            }
+        }
+
+        return new Handles(methodHandle, nonStatic, constructorHandle, constructorError);
+    }
+
+    /**
+     * Wrap a handle so it can be invoked with any arguments. The common single argument case is
+     * bound to a generated {@link Function} where possible, which the JIT can inline unlike a handle
+     * held in a field.
+     */
+    private static Invoker invoker(MethodHandle handle, int arity) {
+        handle = handle.asFixedArity();
+        if (arity == 1) {
+            try {
+                Function<Object, Object> function = (Function<Object, Object>) LambdaMetafactory.metafactory(LOOKUP, "apply",
+                        MethodType.methodType(Function.class), MethodType.methodType(Object.class, Object.class),
+                        handle, handle.type()).getTarget().invokeExact();
+                return args -> function.apply(args[0]);
+            } catch (Throwable ignored) {
+                // Not accessible from a generated class, use the handle directly
+            }
+        }
+        MethodHandle spread = handle.asType(handle.type().generic())
+                .asSpreader(Object[].class, arity)
+                .asType(MethodType.methodType(Object.class, Object[].class));
+        return args -> (Object) spread.invokeExact(args);
+    }
+}
@@ -0,0 +1,759 @@
+package net.ultragrav.serializer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link GravSerializer} backed by direct (off-heap) {@link ByteBuffer}s instead of a heap array.
+ * <p>
+ * Data is kept in chunks, so it can grow beyond 2GB; use the long position methods
+ * ({@link #getReadPositionLong()}, {@link #sizeLong()}, ...) for such sizes, the int ones throw
+ * an {@link ArithmeticException} once a position does not fit. The data can be handed to channels
+ * ({@link #writeTo(WritableByteChannel)}) or to a network library ({@link #nioBuffers()}) without
+ * copying it to the heap.
+ * <p>
+ * Unlike slices of a heap serializer, slices of a direct serializer are read-only and see later
+ * writes to the serializer they were taken from.
+ */
+public class DirectGravSerializer extends GravSerializer {
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+    // Largest region of a file that is mapped as one buffer
+    private static final long MAPPED_REGION_SIZE = 1 << 30;
+
+    private final int chunkSize;
+    private final boolean readOnly;
+
+    // Chunks are little endian, which is the default layout of GravSerializer
+    private ByteBuffer[] chunks = new ByteBuffer[4];
+    // Position of the first byte of each chunk
+    private long[] starts = new long[4];
+    private int chunkCount = 0;
+    private long capacity = 0;
+    // Chunk of the last access, most accesses are sequential
+    private int lastChunk = 0;
+
+    private long used = 0;
+    private long reading = 0;
+    private long mark = 0;
+    private long writeMark = 0;
+
+    public DirectGravSerializer() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param chunkSize Size of the direct buffers allocated as the serializer grows
+     */
+    public DirectGravSerializer(int chunkSize) {
+        super(0);
+        if (chunkSize < 16)
+            throw new IllegalArgumentException("Chunk size must be at least 16 bytes");
+        this.chunkSize = chunkSize;
+        this.readOnly = false;
+    }
+
+    private DirectGravSerializer(ByteBuffer[] buffers, boolean readOnly) {
+        super(0);
+        this.chunkSize = DEFAULT_CHUNK_SIZE;
+        this.readOnly = readOnly;
+        for (ByteBuffer buffer : buffers) {
+            if (buffer.hasRemaining()) {
+                addChunk(buffer.slice());
+            }
+        }
+        this.used = capacity;
+    }
+
+    /**
+     * Read the remaining bytes of the given buffers, in order, without copying them. The buffers'
+     * positions are not changed. The returned serializer is read-only.
+     */
+    public static DirectGravSerializer wrap(ByteBuffer... buffers) {
+        ByteBuffer[] readOnly = new ByteBuffer[buffers.length];
+        for (int i = 0; i < buffers.length; i++) {
+            readOnly[i] = buffers[i].asReadOnlyBuffer();
+        }
+        return new DirectGravSerializer(readOnly, true);
+    }
+
+    /**
+     * Map a file into memory and read it without copying it to the heap, pages are loaded by the
+     * OS as they are read. Files larger than 1GB are mapped in several regions. The returned
+     * serializer is read-only.
+     * <p>
+     * The mapping is released when the serializer is garbage collected. Until then some platforms
+     * (Windows) do not allow the file to be replaced or deleted.
+     */
+    public static DirectGravSerializer map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer[] regions = new ByteBuffer[(int) ((size + MAPPED_REGION_SIZE - 1) / MAPPED_REGION_SIZE)];
+            for (int i = 0; i < regions.length; i++) {
+                long start = i * MAPPED_REGION_SIZE;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAPPED_REGION_SIZE, size - start));
+            }
+            return new DirectGravSerializer(regions, true);
+        }
+    }
+
+    private void addChunk(ByteBuffer chunk) {
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            starts = Arrays.copyOf(starts, chunkCount * 2);
+        }
+        chunks[chunkCount] = chunk.order(ByteOrder.LITTLE_ENDIAN);
+        starts[chunkCount] = capacity;
+        chunkCount++;
+        capacity += chunk.capacity();
+    }
+
+    private int chunkFor(long pos) {
+        int c = lastChunk;
+        if (c < chunkCount && pos >= starts[c] && pos - starts[c] < chunks[c].capacity())
+            return c;
+        int lo = 0;
+        int hi = chunkCount - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (starts[mid] <= pos) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        lastChunk = lo;
+        return lo;
+    }
+
+    private void ensureCapacity(long required) {
+        if (readOnly)
+            throw new ReadOnlyBufferException();
+        while (capacity < required) {
+            addChunk(ByteBuffer.allocateDirect(chunkSize));
+        }
+    }
+
+    private void checkReadable(long len) {
+        if (len < 0)
+            throw new NegativeArraySizeException(String.valueOf(len));
+        if (used - reading < len)
+            throw new IllegalStateException("End of byte array reached (GravSerializer)");
+    }
+
+    /**
+     * A little endian buffer over {@code len} bytes starting at {@code pos}, or null if they are
+     * not in one chunk.
+     */
+    private ByteBuffer region(long pos, int len) {
+        int c = chunkFor(pos);
+        int local = (int) (pos - starts[c]);
+        ByteBuffer chunk = chunks[c];
+        if (local > chunk.capacity() - len)
+            return null;
+        ByteBuffer region = chunk.duplicate();
+        ((Buffer) region).limit(local + len).position(local);
+        return region.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private byte getByte(long pos) {
+        int c = chunkFor(pos);
+        return chunks[c].get((int) (pos - starts[c]));
+    }
+
+    private void putByte(long pos, byte b) {
+        int c = chunkFor(pos);
+        chunks[c].put((int) (pos - starts[c]), b);
+    }
+
+    private int getInt(long pos) {
+        int c = chunkFor(pos);
+        int local = (int) (pos - starts[c]);
+        ByteBuffer chunk = chunks[c];
+        if (local <= chunk.capacity() - 4)
+            return chunk.getInt(local);
+        return (getByte(pos) & 0xFF)
+                | (getByte(pos + 1) & 0xFF) << 8
+                | (getByte(pos + 2) & 0xFF) << 16
+                | (getByte(pos + 3) & 0xFF) << 24;
+    }
+
+    private void putInt(long pos, int i) {
+        int c = chunkFor(pos);
+        int local = (int) (pos - starts[c]);
+        ByteBuffer chunk = chunks[c];
+        if (local <= chunk.capacity() - 4) {
+            chunk.putInt(local, i);
+            return;
+        }
+        putByte(pos, (byte) i);
+        putByte(pos + 1, (byte) (i >>> 8));
+        putByte(pos + 2, (byte) (i >>> 16));
+        putByte(pos + 3, (byte) (i >>> 24));
+    }
+
+    private long getLong(long pos) {
+        int c = chunkFor(pos);
+        int local = (int) (pos - starts[c]);
+        ByteBuffer chunk = chunks[c];
+        if (local <= chunk.capacity() - 8)
+            return chunk.getLong(local);
+        return (getInt(pos) & 0xFFFFFFFFL) | (long) getInt(pos + 4) << 32;
+    }
+
+    private void putLong(long pos, long l) {
+        int c = chunkFor(pos);
+        int local = (int) (pos - starts[c]);
+        ByteBuffer chunk = chunks[c];
+        if (local <= chunk.capacity() - 8) {
+            chunk.putLong(local, l);
+            return;
+        }
+        putInt(pos, (int) l);
+        putInt(pos + 4, (int) (l >>> 32));
+    }
+
+    private void getBytes(long pos, byte[] dst, int off, int len) {
+        while (len > 0) {
+            int c = chunkFor(pos);
+            int local = (int) (pos - starts[c]);
+            ByteBuffer chunk = chunks[c].duplicate();
+            int n = Math.min(len, chunk.capacity() - local);
+            ((Buffer) chunk).position(local);
+            chunk.get(dst, off, n);
+            pos += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    private void putBytes(long pos, ByteBuffer src) {
+        src = src.duplicate();
+        while (src.hasRemaining()) {
+            int c = chunkFor(pos);
+            int local = (int) (pos - starts[c]);
+            ByteBuffer chunk = chunks[c].duplicate();
+            int n = Math.min(src.remaining(), chunk.capacity() - local);
+            ByteBuffer part = src.duplicate();
+            ((Buffer) part).limit(part.position() + n);
+            ((Buffer) chunk).position(local);
+            chunk.put(part);
+            ((Buffer) src).position(src.position() + n);
+            pos += n;
+        }
+    }
+
+    /**
+     * Read-only buffers over the data, in order. They share memory with this serializer.
+     */
+    public ByteBuffer[] nioBuffers() {
+        return buffers(0, used);
+    }
+
+    private ByteBuffer[] buffers(long start, long length) {
+        if (length == 0)
+            return new ByteBuffer[0];
+        int first = chunkFor(start);
+        int last = chunkFor(start + length - 1);
+        ByteBuffer[] ret = new ByteBuffer[last - first + 1];
+        for (int c = first; c <= last; c++) {
+            ByteBuffer buffer = chunks[c].asReadOnlyBuffer();
+            long from = Math.max(start, starts[c]) - starts[c];
+            long to = Math.min(start + length, starts[c] + buffer.capacity()) - starts[c];
+            ((Buffer) buffer).limit((int) to).position((int) from);
+            ret[c - first] = buffer.slice();
+        }
+        return ret;
+    }
+
+    @Override
+    public void mark() {
+        mark = reading;
+    }
+
+    @Override
+    public void writeMark() {
+        writeMark = used;
+    }
+
+    @Override
+    public void writeReset() {
+        movedWritePosition(used, writeMark);
+        long temp = used;
+        used = writeMark;
+        writeMark = temp;
+    }
+
+    @Override
+    public void reset() {
+        long temp = reading;
+        reading = mark;
+        mark = temp;
+    }
+
+    @Override
+    public long skip(long n) {
+        long skipped = Math.max(-reading, Math.min(n, used - reading));
+        reading += skipped;
+        return skipped;
+    }
+
+    @Override
+    public void append(byte[] arr, int off, int len) {
+        if (len > arr.length)
+            throw new IllegalArgumentException("Size cannot be larger than array size!");
+        append(ByteBuffer.wrap(arr, off, len));
+    }
+
+    @Override
+    void append(ByteBuffer buffer) {
+        ensureCapacity(used + buffer.remaining());
+        putBytes(used, buffer);
+        used += buffer.remaining();
+    }
+
+    @Override
+    void checksum(CRC32 crc, int start, int length) {
+        for (ByteBuffer buffer : buffers(start, length)) {
+            crc.update(buffer);
+        }
+    }
+
+    @Override
+    void appendTo(GravSerializer target) {
+        for (ByteBuffer buffer : nioBuffers()) {
+            target.append(buffer);
+        }
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        ensureCapacity((long) capacity);
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        used = 0;
+        reading = 0;
+        mark = 0;
+        writeMark = 0;
+    }
+
+    @Override
+    public int size() {
+        return Math.toIntExact(used);
+    }
+
+    @Override
+    public long sizeLong() {
+        return used;
+    }
+
+    @Override
+    public int trueSize() {
+        return (int) Math.min(capacity, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void writeByteArray(byte[] bites) {
+        writeSize(bites.length);
+        append(bites);
+    }
+
+    @Override
+    public void writeString(String str) {
+        if (str == null) {
+            writeSize(-1);
+            return;
+        }
+        writeByteArray(str.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    String readString(int size) {
+        if (size == -1) return null;
+        return new String(readBytes(size), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void writeShort(short value) {
+        ensureCapacity(used + 2);
+        putByte(used, (byte) value);
+        putByte(used + 1, (byte) (value >>> 8));
+        used += 2;
+    }
+
+    @Override
+    public void writeByte(byte bite) {
+        ensureCapacity(used + 1);
+        putByte(used++, bite);
+    }
+
+    @Override
+    public int getReadPosition() {
+        return Math.toIntExact(reading);
+    }
+
+    @Override
+    public void setReadPosition(int pos) {
+        reading = pos;
+    }
+
+    @Override
+    public long getReadPositionLong() {
+        return reading;
+    }
+
+    @Override
+    public void setReadPosition(long pos) {
+        reading = pos;
+    }
+
+    @Override
+    public int getWritePosition() {
+        return Math.toIntExact(used);
+    }
+
+    @Override
+    public void setWritePosition(int pos) {
+        setWritePosition((long) pos);
+    }
+
+    @Override
+    public long getWritePositionLong() {
+        return used;
+    }
+
+    @Override
+    public void setWritePosition(long pos) {
+        movedWritePosition(used, pos);
+        used = pos;
+    }
+
+    @Override
+    public int getRemaining() {
+        return (int) Math.min(used - reading, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void writeLong(long l, boolean littleEndian) {
+        ensureCapacity(used + 8);
+        putLong(used, littleEndian ? Long.reverseBytes(l) : l);
+        used += 8;
+    }
+
+    @Override
+    public void writeInt(int i, boolean littleEndian) {
+        ensureCapacity(used + 4);
+        putInt(used, littleEndian ? Integer.reverseBytes(i) : i);
+        used += 4;
+    }
+
+    @Override
+    long beginLengthPrefix() {
+        long pos = used;
+        writeInt(0);
+        return pos;
+    }
+
+    @Override
+    void endLengthPrefix(long pos) {
+        putInt(pos, Math.toIntExact(used - pos - 4));
+    }
+
+    @Override
+    public void writeIntArray(int[] arr) {
+        writeSize(arr.length);
+        ensureCapacity(used + (long) arr.length * 4);
+        ByteBuffer region = region(used, arr.length * 4);
+        if (region != null) {
+            region.asIntBuffer().put(arr);
+            used += arr.length * 4;
+        } else {
+            for (int i : arr) writeInt(i);
+        }
+    }
+
+    @Override
+    public int[] readIntArray() {
+        int len = readSize();
+        checkReadable((long) len * 4);
+        int[] arr = new int[len];
+        ByteBuffer region = region(reading, len * 4);
+        if (region != null) {
+            region.asIntBuffer().get(arr);
+            reading += len * 4;
+        } else {
+            for (int i = 0; i < len; i++) arr[i] = readInt();
+        }
+        return arr;
+    }
+
+    @Override
+    public void writeLongArray(long[] arr) {
+        writeSize(arr.length);
+        ensureCapacity(used + (long) arr.length * 8);
+        ByteBuffer region = region(used, arr.length * 8);
+        if (region != null) {
+            region.asLongBuffer().put(arr);
+            used += arr.length * 8;
+        } else {
+            for (long l : arr) writeLong(l);
+        }
+    }
+
+    @Override
+    public long[] readLongArray() {
+        int len = readSize();
+        checkReadable((long) len * 8);
+        long[] arr = new long[len];
+        ByteBuffer region = region(reading, len * 8);
+        if (region != null) {
+            region.asLongBuffer().get(arr);
+            reading += len * 8;
+        } else {
+            for (int i = 0; i < len; i++) arr[i] = readLong();
+        }
+        return arr;
+    }
+
+    @Override
+    public void writeShortArray(short[] arr) {
+        writeSize(arr.length);
+        ensureCapacity(used + (long) arr.length * 2);
+        ByteBuffer region = region(used, arr.length * 2);
+        if (region != null) {
+            region.asShortBuffer().put(arr);
+            used += arr.length * 2;
+        } else {
+            for (short s : arr) writeShort(s);
+        }
+    }
+
+    @Override
+    public short[] readShortArray() {
+        int len = readSize();
+        checkReadable((long) len * 2);
+        short[] arr = new short[len];
+        ByteBuffer region = region(reading, len * 2);
+        if (region != null) {
+            region.asShortBuffer().get(arr);
+            reading += len * 2;
+        } else {
+            for (int i = 0; i < len; i++) arr[i] = readShort();
+        }
+        return arr;
+    }
+
+    @Override
+    public void writeFloatArray(float[] arr) {
+        writeSize(arr.length);
+        ensureCapacity(used + (long) arr.length * 4);
+        ByteBuffer region = region(used, arr.length * 4);
+        if (region != null) {
+            region.asFloatBuffer().put(arr);
+            used += arr.length * 4;
+        } else {
+            for (float f : arr) writeFloat(f);
+        }
+    }
+
+    @Override
+    public float[] readFloatArray() {
+        int len = readSize();
+        checkReadable((long) len * 4);
+        float[] arr = new float[len];
+        ByteBuffer region = region(reading, len * 4);
+        if (region != null) {
+            region.asFloatBuffer().get(arr);
+            reading += len * 4;
+        } else {
+            for (int i = 0; i < len; i++) arr[i] = readFloat();
+        }
+        return arr;
+    }
+
+    @Override
+    public void writeDoubleArray(double[] arr) {
+        writeSize(arr.length);
+        ensureCapacity(used + (long) arr.length * 8);
+        ByteBuffer region = region(used, arr.length * 8);
+        if (region != null) {
+            region.asDoubleBuffer().put(arr);
+            used += arr.length * 8;
+        } else {
+            for (double d : arr) writeDouble(d);
+        }
+    }
+
+    @Override
+    public double[] readDoubleArray() {
+        int len = readSize();
+        checkReadable((long) len * 8);
+        double[] arr = new double[len];
+        ByteBuffer region = region(reading, len * 8);
+        if (region != null) {
+            region.asDoubleBuffer().get(arr);
+            reading += len * 8;
+        } else {
+            for (int i = 0; i < len; i++) arr[i] = readDouble();
+        }
+        return arr;
+    }
+
+    @Override
+    public GravSerializer readSlice(int length) {
+        checkReadable(length);
+        GravSerializer slice = slice(reading, length);
+        reading += length;
+        return slice;
+    }
+
+    @Override
+    public GravSerializer slice(int start, int length) {
+        return slice((long) start, length);
+    }
+
+    /**
+     * A read-only serializer over {@code length} bytes of this one starting at {@code start}.
+     */
+    public DirectGravSerializer slice(long start, long length) {
+        if (start < 0 || length < 0 || start > used - length)
+            throw new IndexOutOfBoundsException("Slice " + start + "+" + length + " out of bounds for size " + used);
+        DirectGravSerializer slice = new DirectGravSerializer(buffers(start, length), true);
+        slice.setCompact(isCompact());
+        return slice;
+    }
+
+    @Override
+    public long readLong(boolean littleEndian) {
+        checkReadable(8);
+        long out = getLong(reading);
+        reading += 8;
+        return littleEndian ? Long.reverseBytes(out) : out;
+    }
+
+    @Override
+    public short readShort() {
+        checkReadable(2);
+        short out = (short) (getByte(reading + 1) << 8 | (getByte(reading) & 0xFF));
+        reading += 2;
+        return out;
+    }
+
+    @Override
+    public byte readByte() {
+        if (reading >= used)
+            throw new IllegalStateException("End of byte array reached (GravSerializer)");
+        return getByte(reading++);
+    }
+
+    @Override
+    public byte[] readBytes(int len) {
+        if (len >= 0 && used - reading < len)
+            throw new IllegalStateException("Insufficient bytes to read");
+        byte[] ret = new byte[len];
+        readBytes(ret);
+        return ret;
+    }
+
+    @Override
+    public int readBytes(byte[] buf, int off, int len) {
+        int count = (int) Math.min(len, used - reading);
+        getBytes(reading, buf, off, count);
+        reading += count;
+        return count;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return reading < used;
+    }
+
+    @Override
+    public void writeUUID(UUID id) {
+        ensureCapacity(used + 16);
+        putLong(used, id.getMostSignificantBits());
+        putLong(used + 8, id.getLeastSignificantBits());
+        used += 16;
+    }
+
+    @Override
+    public UUID readUUID() {
+        checkReadable(16);
+        UUID id = new UUID(getLong(reading), getLong(reading + 8));
+        reading += 16;
+        return id;
+    }
+
+    @Override
+    public int readInt(boolean littleEndian) {
+        checkReadable(4);
+        int out = getInt(reading);
+        reading += 4;
+        return littleEndian ? Integer.reverseBytes(out) : out;
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        if (used > Integer.MAX_VALUE - 8)
+            throw new IllegalStateException("Serializer is too large for a byte array (" + used + " bytes)");
+        byte[] ret = new byte[(int) used];
+        getBytes(0, ret, 0, ret.length);
+        return ret;
+    }
+
+    @Override
+    public long writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer[] buffers = nioBuffers();
+        if (channel instanceof GatheringByteChannel) {
+            GatheringByteChannel gathering = (GatheringByteChannel) channel;
+            int first = 0;
+            while (first < buffers.length) {
+                gathering.write(buffers, first, buffers.length - first);
+                while (first < buffers.length && !buffers[first].hasRemaining()) {
+                    first++;
+                }
+            }
+        } else {
+            for (ByteBuffer buffer : buffers) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+        return used;
+    }
+
+    @Override
+    public void writeToStream(OutputStream stream, Compressor compressor) throws IOException {
+        if (compressor != null) {
+            super.writeToStream(stream, compressor);
+            return;
+        }
+
+        byte[] transfer = new byte[8192];
+        for (ByteBuffer buffer : nioBuffers()) {
+            while (buffer.hasRemaining()) {
+                int n = Math.min(transfer.length, buffer.remaining());
+                buffer.get(transfer, 0, n);
+                stream.write(transfer, 0, n);
+            }
+        }
+        stream.flush();
+        stream.close();
+    }
+}
@@ -1,7 +1,5 @@
 package net.ultragrav.serializer;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -19,8 +17,14 @@ public interface GravSerializable {
 
     static Object deserializeObject(net.ultragrav.serializer.GravSerializer serializer, Object... otherArguments) {
 
-        String className = serializer.readString();
+        Class<?> clazz = serializer.readClass(GravSerializable::resolveClass);
 
+        serializer = serializer.readSerializer(); //Read the buffer
+
+        return deserialize(clazz.asSubclass(GravSerializable.class), serializer, otherArguments);
+    }
+
+    static Class<?> resolveClass(String className) {
         // Do exact matches first
         for (Map.Entry<String, String> mapping : relocationMappings.entrySet()) {
             if (className.equals(mapping.getKey())) {
@@ -33,23 +37,19 @@ public interface GravSerializable {
             className = className.replace(mapping.getKey(), mapping.getValue());
         }
 
-        serializer = serializer.readSerializer(); //Read the buffer
-
-        Class<?> clazz;
         try {
-            clazz = Class.forName(className);
+            return Class.forName(className);
         } catch (ClassNotFoundException | NoClassDefFoundError e) {
             throw new ObjectDeserializationException("Could not find class " + className, e, ObjectDeserializationException.DeserializationExceptionCause.CLASS_NOT_FOUND);
         }
-
-        return deserialize(clazz.asSubclass(GravSerializable.class), serializer, otherArguments);
     }
 
     static <T extends GravSerializable> T deserialize(Class<T> clazz, GravSerializer serializer, Object... otherArguments) {
-        if (MetaSerializable.class.isAssignableFrom(clazz)) {
+        DeserializationHandles.Kind kind = DeserializationHandles.kind(clazz);
+        if (kind == DeserializationHandles.Kind.META_SERIALIZABLE) {
             return (T) MetaSerializable.deserializeObject(clazz.asSubclass(MetaSerializable.class), serializer, otherArguments);
         }
-        if (JsonMetaSerializable.class.isAssignableFrom(clazz)) {
+        if (kind == DeserializationHandles.Kind.JSON_META_SERIALIZABLE) {
             return (T) JsonMetaSerializable.deserializeObject(clazz.asSubclass(JsonMetaSerializable.class), serializer, otherArguments);
         }
 
@@ -61,34 +61,46 @@ public interface GravSerializable {
             argumentTypes[i + 1] = otherArguments[i].getClass();
             arguments[i + 1] = otherArguments[i];
         }
-        boolean c1 = false;
+        DeserializationHandles.Handles handles;
         try {
+            handles = DeserializationHandles.exact(clazz, argumentTypes);
+        } catch (NoClassDefFoundError e) {
+            throw new ObjectDeserializationException("Could not find class " + e.getMessage(), e, ObjectDeserializationException.DeserializationExceptionCause.CLASS_NOT_FOUND);
+        }
+        if (handles.method != null) {
             try {
-                Method m = clazz.getMethod("deserialize", argumentTypes);
-                return (T) m.invoke(null, arguments);
-            } catch (NoSuchMethodException ignored) {
-            } catch (NullPointerException e) {
-                c1 = true;
-            } catch (Exception e) {
-                e.printStackTrace();
-            } catch (NoClassDefFoundError e) {
-                throw new ObjectDeserializationException("Could not find class " + e.getMessage(), e, ObjectDeserializationException.DeserializationExceptionCause.CLASS_NOT_FOUND);
+                return (T) handles.invokeMethod(arguments);
+            } catch (Throwable t) {
+                t.printStackTrace();
             }
-            Constructor<?> constructor = clazz.getDeclaredConstructor(argumentTypes);
-            return (T) constructor.newInstance(arguments);
-        } catch (Exception e) {
-            if (!c1)
-                throw new ObjectDeserializationException("ERROR: Could NOT find a deserialization method for " + clazz.getName(), e, ObjectDeserializationException.DeserializationExceptionCause.NO_DESERIALIZATION_METHOD);
-            throw new ObjectDeserializationException("ERROR: Deserialization method non-static for " + clazz.getName(), e, ObjectDeserializationException.DeserializationExceptionCause.NO_DESERIALIZATION_METHOD);
+        }
+
+        String message = handles.methodNonStatic
+                ? "ERROR: Deserialization method non-static for " + clazz.getName()
+                : "ERROR: Could NOT find a deserialization method for " + clazz.getName();
+        if (handles.constructor == null) {
+            Throwable cause = handles.constructorError != null ? handles.constructorError : new NoSuchMethodException(clazz.getName() + ".<init>");
+            throw new ObjectDeserializationException(message, cause, ObjectDeserializationException.DeserializationExceptionCause.NO_DESERIALIZATION_METHOD);
+        }
+        try {
+            return (T) handles.invokeConstructor(arguments);
+        } catch (Throwable t) {
+            throw new ObjectDeserializationException(message, t, ObjectDeserializationException.DeserializationExceptionCause.NO_DESERIALIZATION_METHOD);
         }
     }
 
     static void serializeObject(net.ultragrav.serializer.GravSerializer serializer, GravSerializable serializable) {
-        serializer.writeString(serializable.getClass().getName());
-        GravSerializer serializer1 = new GravSerializer(); //Buffer the object - This is for the reason of if a object's class could not be found on deserialization
-        //Then it should be able to skip the object
-        serializable.serialize(serializer1); //Serialize
-        serializer.writeSerializer(serializer1); //Write the buffer
+        serializer.writeClassName(serializable.getClass().getName());
+        // Length prefixed - This is for the reason of if a object's class could not be found on deserialization
+        // Then it should be able to skip the object. Written in place and the length filled in afterwards
+        long lengthPos = serializer.beginLengthPrefix();
+        ClassNameTable classNames = serializer.enterWriteScope();
+        try {
+            serializable.serialize(serializer); //Serialize
+        } finally {
+            serializer.exitWriteScope(classNames);
+        }
+        serializer.endLengthPrefix(lengthPos);
     }
 
     void serialize(net.ultragrav.serializer.GravSerializer serializer);
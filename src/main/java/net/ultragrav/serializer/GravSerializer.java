@@ -5,22 +5,83 @@ import net.ultragrav.serializer.compressors.StandardCompressor;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.zip.CRC32;
 
 @SuppressWarnings("unchecked")
 public class GravSerializer implements GravSerializable {
     private byte[] bytes = new byte[16]; //Default 16 byte capacity
+    // Start of this serializer's data in bytes, only non-zero for slices
+    private int offset = 0;
+    // Set when the backing array is also referenced by a slice or its parent, writes must copy it first
+    private boolean shared = false;
+    // Number of bytes a slice covers, used when it has to copy its data on a write
+    private int viewLength = -1;
     private int used = 0;
     private int reading = 0;
     private int mark = 0;
     private int writeMark = 0;
+    // Set while sitting in a GravSerializerPool, to catch double releases
+    boolean pooled = false;
+
+    // Class name slots use negative lengths, -1 is already taken by null strings
+    private static final int CLASS_NAME_DEFINITION = -2;
+    private static final int CLASS_NAME_REFERENCE = -3;
+
+    private boolean internClassNames = false;
+    private ClassNameTable writtenNames = null;
+    private ClassNameTable readNames = null;
+    // Lowest write position moved back to since the written names were last checked, see movedWritePosition
+    private long rewoundTo = Long.MAX_VALUE;
+
+    private boolean compact = false;
+    private boolean internKeys = false;
+
+    public static final int DEFAULT_WINDOW_SIZE = 1 << 16;
+
+    // Streaming mode, see streaming(InputStream, Compressor, int) and streaming(OutputStream, Compressor, int)
+    private InputStream source = null;
+    private OutputStream sink = null;
+    // Bytes buffered before a streaming reader drops or a streaming writer flushes data
+    private int window = 0;
+    // Stream position of bytes[offset], everything before it was dropped or flushed
+    private long windowStart = 0;
+    // Stream position a streaming reader has to keep buffered, see pin(long)
+    private long pinned = Long.MAX_VALUE;
+    // mark() was called, so reset() has to be able to go back to it
+    private boolean markSet = false;
+    // Length prefixes that are not filled in yet, a streaming writer cannot flush beyond the first one
+    private int openPrefixes = 0;
+    private long firstOpenPrefix = -1;
 
     public GravSerializer() {
     }
 
+    /**
+     * Create an empty serializer with room for {@code initialCapacity} bytes before it has to grow.
+     */
+    public GravSerializer(int initialCapacity) {
+        if (initialCapacity < 0)
+            throw new IllegalArgumentException("Negative capacity: " + initialCapacity);
+        bytes = new byte[initialCapacity];
+    }
+
     public GravSerializer(InputStream is) throws IOException {
         this(is, null);
     }
@@ -68,12 +129,136 @@ public class GravSerializer implements GravSerializable {
         used = bytes.length;
     }
 
+    /**
+     * Read a whole file with a single read into an array of the file's size.
+     *
+     * @see DirectGravSerializer#map(Path)
+     */
+    public static GravSerializer load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8)
+                throw new IOException("File is too large for a GravSerializer (" + size + " bytes), map it instead: " + path);
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1)
+                    break;
+            }
+            // Only a file that shrank while being read needs trimming
+            byte[] bytes = buffer.hasRemaining() ? Arrays.copyOf(buffer.array(), buffer.position()) : buffer.array();
+            return new GravSerializer(bytes, false);
+        }
+    }
+
+    /**
+     * Read a whole file written by {@link #save(Path, Compressor)}.
+     *
+     * @param compressor Compressor the file was written with, or null
+     */
+    public static GravSerializer load(Path path, Compressor compressor) throws IOException {
+        GravSerializer serializer = load(path);
+        if (compressor == null)
+            return serializer;
+        byte[] output;
+        try {
+            output = compressor.decompress(serializer.bytes);
+        } catch (DecompressionException e) {
+            output = StandardCompressor.instance.decompress(serializer.bytes);
+        }
+        return new GravSerializer(output, false);
+    }
+
+    /**
+     * A serializer that reads from {@code in} as data is needed, instead of reading the whole
+     * stream up front.
+     *
+     * @see #streaming(InputStream, Compressor, int)
+     */
+    public static GravSerializer streaming(InputStream in) throws IOException {
+        return streaming(in, null, DEFAULT_WINDOW_SIZE);
+    }
+
+    public static GravSerializer streaming(InputStream in, Compressor compressor) throws IOException {
+        return streaming(in, compressor, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * A serializer that reads from {@code in} as data is needed. Only about {@code windowSize} bytes
+     * are buffered, read data is dropped when the window is refilled, so memory use does not depend
+     * on the size of the stream. Larger single values (a long byte array or a kept JsonMeta block)
+     * grow the window as far as needed.
+     * <p>
+     * Read positions are positions in the stream, but can only be moved back as far as the data
+     * is still buffered: to the last {@link #mark()}, or inside the value currently being read.
+     * {@link #size()}, {@link #getRemaining()} and {@link #toByteArray()} only cover buffered data.
+     * Unlike {@link #GravSerializer(InputStream, Compressor)} there is no fallback to the standard
+     * compressor when decompression fails, the data has already been consumed by then.
+     *
+     * @param compressor Compressor the stream was written with, or null
+     */
+    public static GravSerializer streaming(InputStream in, Compressor compressor, int windowSize) throws IOException {
+        if (windowSize <= 0)
+            throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+        GravSerializer serializer = new GravSerializer(windowSize);
+        serializer.source = compressor == null ? in : compressor.decompress(in);
+        serializer.window = windowSize;
+        return serializer;
+    }
+
+    /**
+     * A serializer that writes to {@code out} as its buffer fills up.
+     *
+     * @see #streaming(OutputStream, Compressor, int)
+     */
+    public static GravSerializer streaming(OutputStream out) throws IOException {
+        return streaming(out, null, DEFAULT_WINDOW_SIZE);
+    }
+
+    public static GravSerializer streaming(OutputStream out, Compressor compressor) throws IOException {
+        return streaming(out, compressor, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * A serializer that flushes its data to {@code out} once {@code flushThreshold} bytes are
+     * buffered. {@link #close()} must be called to write the rest and close the stream.
+     * <p>
+     * Length-prefixed blocks (GravSerializable payloads, Meta entries and JsonMeta values) are
+     * only flushed once they are complete, since their length is filled in afterwards. A single
+     * huge value therefore still has to fit in memory, but a JsonMeta with many values does not.
+     * <p>
+     * Write positions are positions in the stream. Data can not be rewritten once it was flushed.
+     *
+     * @param compressor Compressor to write the stream with, or null
+     */
+    public static GravSerializer streaming(OutputStream out, Compressor compressor, int flushThreshold) throws IOException {
+        if (flushThreshold <= 0)
+            throw new IllegalArgumentException("Flush threshold must be positive: " + flushThreshold);
+        GravSerializer serializer = new GravSerializer(flushThreshold);
+        serializer.sink = compressor == null ? out : compressor.compress(out);
+        serializer.window = flushThreshold;
+        return serializer;
+    }
+
+    /**
+     * A slice of {@code length} bytes of {@code parent}, starting at {@code start}.
+     */
+    private GravSerializer(GravSerializer parent, int start, int length) {
+        parent.shared = true;
+        this.bytes = parent.bytes;
+        this.offset = parent.offset + start;
+        this.shared = true;
+        this.viewLength = length;
+        this.used = length;
+        this.compact = parent.compact;
+    }
+
     /**
      * Sets the marker to the current reading byte
      * When you do reset() it will reset to the current reading byte
      */
     public void mark() {
         mark = reading;
+        markSet = true;
     }
 
     /**
@@ -87,12 +272,23 @@ public class GravSerializer implements GravSerializable {
      * Resets serializer's writing position to the last writeMark and sets the writeMark to the current write position.
      */
     public void writeReset() {
+        movedWritePosition(windowStart + used, windowStart + writeMark);
         int temp = used;
         used = writeMark;
         writeMark = temp;
     }
 
     public long skip(long n) {
+        if (source != null && n > used - reading) {
+            long skipped = 0;
+            while (n > 0 && (reading < used || fill(1))) {
+                int step = (int) Math.min(n, used - reading);
+                reading += step;
+                skipped += step;
+                n -= step;
+            }
+            return skipped;
+        }
         if (reading + n < 0) {
             int skipped = reading;
             reading = 0;
@@ -120,13 +316,22 @@ public class GravSerializer implements GravSerializable {
             throw new IllegalArgumentException("Size cannot be larger than array size!");
 
         ensureCapacity(used + len);
-        System.arraycopy(arr, off, this.bytes, this.used, len);
+        System.arraycopy(arr, off, this.bytes, offset + this.used, len);
         this.used += len;
     }
 
     public void ensureCapacity(int capacity) {
+        if (shared) {
+            unshare(capacity);
+            return;
+        }
         if (this.bytes.length >= capacity)
             return;
+        if (sink != null) {
+            capacity -= drain();
+            if (this.bytes.length >= capacity)
+                return;
+        }
 
         int oldCapacity = this.bytes.length;
         int newCapacity = Math.max(oldCapacity + (oldCapacity >> 1), capacity); // max(old + (old/2), cap)
@@ -135,6 +340,183 @@ public class GravSerializer implements GravSerializable {
         this.bytes = b;
     }
 
+    /**
+     * Copy the data into an array of our own before the first write to a shared one,
+     * so slices and their parent never see each other's writes.
+     */
+    private void unshare(int capacity) {
+        int length = viewLength == -1
+                ? this.bytes.length - offset
+                : Math.min(Math.max(used, viewLength), this.bytes.length - offset);
+        byte[] b = new byte[Math.max(length, capacity)];
+        System.arraycopy(this.bytes, offset, b, 0, length);
+        this.bytes = b;
+        this.offset = 0;
+        this.shared = false;
+        this.viewLength = -1;
+    }
+
+    /**
+     * Drop the data before {@code keep} from the window, moving the rest to the start of the array.
+     *
+     * @param capacity Capacity needed after dropping
+     */
+    private void compact(int keep, int capacity) {
+        byte[] target = this.bytes;
+        if (shared || target.length - offset < capacity) {
+            target = new byte[Math.max(capacity, window)];
+        }
+        System.arraycopy(this.bytes, offset + keep, target, 0, used - keep);
+        this.bytes = target;
+        this.offset = 0;
+        this.shared = false;
+        this.viewLength = -1;
+        this.windowStart += keep;
+        this.used -= keep;
+        this.reading = Math.max(0, reading - keep);
+        this.mark = Math.max(0, mark - keep);
+        this.writeMark = Math.max(0, writeMark - keep);
+    }
+
+    /**
+     * Read from the source of a streaming serializer until {@code len} bytes can be read.
+     *
+     * @return Whether that many bytes are available
+     */
+    private boolean fill(long len) {
+        if (source == null)
+            return false;
+        if (used - reading >= len)
+            return true;
+
+        // Everything before the read position, the mark and the pinned position can be dropped
+        int keep = reading;
+        if (markSet)
+            keep = Math.min(keep, mark);
+        if (pinned != Long.MAX_VALUE)
+            keep = (int) Math.max(0, Math.min(keep, pinned - windowStart));
+        long required = reading - keep + len;
+        if (required > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Serializer cannot buffer more than 2GB (requested " + required + " bytes)");
+        compact(keep, (int) required);
+
+        try {
+            while (used - reading < len) {
+                int read = source.read(bytes, used, bytes.length - used);
+                if (read == -1) {
+                    source.close();
+                    source = null;
+                    return false;
+                }
+                used += read;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return true;
+    }
+
+    /**
+     * Flush the data of a streaming writer that is not part of an open length-prefixed block.
+     *
+     * @return Number of bytes flushed
+     */
+    private int drain() {
+        int end = openPrefixes > 0 ? (int) (firstOpenPrefix - windowStart) : used;
+        if (end == 0)
+            return 0;
+        try {
+            sink.write(bytes, offset, end);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        compact(end, used - end);
+        return end;
+    }
+
+    /**
+     * Keep the data from {@code pos} on buffered while streaming, so the read position can be
+     * moved back to it.
+     *
+     * @return The previous pin, to be passed to {@link #unpin(long)}
+     */
+    long pin(long pos) {
+        long previous = pinned;
+        pinned = Math.min(pinned, pos);
+        return previous;
+    }
+
+    void unpin(long previous) {
+        pinned = previous;
+    }
+
+    /**
+     * Write everything a streaming writer can to its stream and flush it. Data in length-prefixed
+     * blocks that are still being written stays buffered. Does nothing if this serializer is not
+     * streaming.
+     */
+    public void flush() throws IOException {
+        if (sink != null) {
+            try {
+                drain();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            sink.flush();
+        }
+    }
+
+    /**
+     * Write the remaining data of a streaming writer and close its stream, or close the stream of
+     * a streaming reader. Does nothing if this serializer is not streaming.
+     */
+    public void close() throws IOException {
+        if (sink != null) {
+            if (openPrefixes > 0)
+                throw new IllegalStateException("Cannot close while a length-prefixed block is being written");
+            flush();
+            sink.close();
+            sink = null;
+        }
+        if (source != null) {
+            source.close();
+            source = null;
+        }
+    }
+
+    boolean isStreaming() {
+        return source != null || sink != null;
+    }
+
+    /**
+     * Empty this serializer so it can be reused, keeping its capacity unless the backing
+     * array is shared with slices.
+     */
+    public void clear() {
+        if (shared) {
+            bytes = new byte[16];
+            offset = 0;
+            shared = false;
+            viewLength = -1;
+        }
+        used = 0;
+        reading = 0;
+        mark = 0;
+        writeMark = 0;
+        writtenNames = null;
+        readNames = null;
+        rewoundTo = Long.MAX_VALUE;
+        windowStart = 0;
+        pinned = Long.MAX_VALUE;
+        markSet = false;
+        openPrefixes = 0;
+        firstOpenPrefix = -1;
+    }
+
+    boolean isShared() {
+        return shared;
+    }
+
     /**
      * Resets to the last marker (mark()) and sets the mark to the current read position.
      */
@@ -149,67 +531,433 @@ public class GravSerializer implements GravSerializable {
     }
 
     public int trueSize() {
-        return this.bytes.length;
+        return this.bytes.length - offset;
     }
 
+    /**
+     * Write a string as its UTF-8 bytes with the length in front, encoded straight into the buffer.
+     * Unpaired surrogates are written as '?', like {@link String#getBytes(java.nio.charset.Charset)}.
+     */
     public void writeString(String str) {
         if (str == null) {
-            writeInt(-1);
+            writeSize(-1);
             return;
         }
-        writeByteArray(str.getBytes());
+        int len = str.length();
+        if (len > 1024) {
+            // Exact size, rather than reserving 3 bytes per char
+            int length = utf8Length(str);
+            writeSize(length);
+            ensureCapacity(used + length);
+            used = encodeUtf8(str, bytes, offset + used) - offset;
+            return;
+        }
+
+        // Encode in one pass after room for the length, assuming one byte per char. The
+        // data is moved if the length turns out to need a longer varint, at most 5 bytes
+        int prefix = compact ? compactIntSize(len) : 4;
+        ensureCapacity(used + 5 + len * 3);
+        int start = offset + used + prefix;
+        int length = encodeUtf8(str, bytes, start) - start;
+        if (compact) {
+            int actual = compactIntSize(length);
+            if (actual != prefix) {
+                System.arraycopy(bytes, start, bytes, start + actual - prefix, length);
+            }
+            writeCompactInt(length);
+        } else {
+            putInt(used, length, false);
+            used += 4;
+        }
+        used += length;
+    }
+
+    /**
+     * Number of bytes {@link #writeCompactInt(int)} writes for {@code i}.
+     */
+    private static int compactIntSize(int i) {
+        int v = (i << 1) ^ (i >> 31);
+        return v == 0 ? 1 : (38 - Integer.numberOfLeadingZeros(v)) / 7;
+    }
+
+    /**
+     * Number of bytes {@link #encodeUtf8(String, byte[], int)} writes for {@code str}.
+     */
+    static int utf8Length(String str) {
+        int len = str.length();
+        int count = len;
+        int i = 0;
+        // Fast path, one byte per char
+        while (i < len && str.charAt(i) < 0x80) {
+            i++;
+        }
+        for (; i < len; i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                count += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1))) {
+                // 4 bytes for the pair
+                count += 2;
+                i++;
+            } else if (!Character.isSurrogate(c)) {
+                count += 2;
+            }
+            // Unpaired surrogates are replaced with a single byte
+        }
+        return count;
+    }
+
+    /**
+     * Encode {@code str} as UTF-8 into {@code dst} from {@code pos}, which must have room for
+     * {@link #utf8Length(String)} bytes.
+     *
+     * @return The position after the last written byte
+     */
+    static int encodeUtf8(String str, byte[] dst, int pos) {
+        int len = str.length();
+        int i = 0;
+        while (i < len) {
+            char c = str.charAt(i);
+            if (c >= 0x80)
+                break;
+            dst[pos++] = (byte) c;
+            i++;
+        }
+        for (; i < len; i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                dst[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                dst[pos++] = (byte) (0xC0 | c >> 6);
+                dst[pos++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, str.charAt(++i));
+                    dst[pos++] = (byte) (0xF0 | cp >> 18);
+                    dst[pos++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                    dst[pos++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                    dst[pos++] = (byte) (0x80 | cp & 0x3F);
+                } else {
+                    dst[pos++] = '?';
+                }
+            } else {
+                dst[pos++] = (byte) (0xE0 | c >> 12);
+                dst[pos++] = (byte) (0x80 | c >> 6 & 0x3F);
+                dst[pos++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return pos;
     }
 
     public String readString() {
-        int size = readInt();
+        return readString(readSize());
+    }
+
+    /**
+     * Read a string of {@code size} UTF-8 bytes, decoded straight from the buffer.
+     */
+    String readString(int size) {
         if (size == -1) return null;
-        byte[] bites = readBytes(size);
-        return new String(bites);
+        checkReadable(size);
+        String str = decodeUtf8(bytes, offset + reading, size);
+        reading += size;
+        return str;
+    }
+
+    @SuppressWarnings("deprecation")
+    static String decodeUtf8(byte[] src, int pos, int len) {
+        for (int i = pos, end = pos + len; i < end; i++) {
+            if (src[i] < 0) {
+                return new String(src, pos, len, StandardCharsets.UTF_8);
+            }
+        }
+        // Only ASCII, which maps byte for byte to chars without going through a decoder
+        return new String(src, 0, pos, len);
+    }
+
+    /**
+     * When enabled, class names written by {@link #writeClassName(String)} (the class names of
+     * GravSerializables, enums, object arrays and custom serializers) are only written in full
+     * the first time they appear, later occurrences refer back to it by id.
+     * <p>
+     * Ids are scoped to one length-delimited block: the top level of this serializer, each
+     * GravSerializable payload, each Meta entry and each JsonMeta value. A block can therefore
+     * still be skipped or kept for later deserialization on its own.
+     * <p>
+     * Readers need no configuration, but older versions of this library cannot read interned data.
+     */
+    public void setClassNameInterning(boolean internClassNames) {
+        this.internClassNames = internClassNames;
+    }
+
+    public boolean isClassNameInterning() {
+        return internClassNames;
+    }
+
+    /**
+     * When enabled, JsonMeta keys are only written in full the first time they appear in a
+     * scope (the same scopes as {@link #setClassNameInterning(boolean)}), later occurrences refer
+     * back to it by a varint index. A list of documents with the same keys then only writes
+     * each key once.
+     * <p>
+     * JsonMeta marks such documents in its format version, so readers need no configuration.
+     * Keys read this way are interned, documents share their key instances.
+     */
+    public void setKeyInterning(boolean internKeys) {
+        this.internKeys = internKeys;
+    }
+
+    public boolean isKeyInterning() {
+        return internKeys;
+    }
+
+    /**
+     * Write a key, see {@link #setKeyInterning(boolean)}.
+     */
+    void writeKey(String key) {
+        if (rewoundTo != Long.MAX_VALUE) {
+            overwroteNames(Long.MAX_VALUE);
+        }
+        if (writtenNames == null) {
+            writtenNames = new ClassNameTable();
+        }
+        ClassNameTable keys = writtenNames.keys();
+        int id = keys.idOf(key);
+        if (id != -1) {
+            writeVarInt(id + 1);
+        } else {
+            keys.add(key, getWritePositionLong());
+            writeVarInt(0);
+            writeString(key);
+        }
+    }
+
+    String readKey() {
+        int id = (int) readVarInt();
+        ClassNameTable keys = readNames().keys();
+        if (id == 0) {
+            String key = readString();
+            if (key != null) {
+                key = key.intern();
+            }
+            keys.add(key);
+            return key;
+        }
+        return keys.name(id - 1);
+    }
+
+    /**
+     * When enabled, lengths, collection sizes, class name slots and boxed integers are written as
+     * varints ({@link #writeCompactInt(int)}) instead of fixed 4 byte ints, most of them then take
+     * a single byte. Fixed width values (primitives written directly, array elements, block lengths
+     * that are filled in afterwards) are not affected.
+     * <p>
+     * Values written with {@link #writeObject(Object)} and JsonMeta documents record whether they
+     * are compact, so they are read correctly whatever the reader's setting is. Lengths written
+     * directly, like {@link #writeString(String)} at the top level, are read according to this
+     * setting, so the reader has to match the writer. Older versions of this library cannot read
+     * compact data.
+     */
+    public void setCompact(boolean compact) {
+        this.compact = compact;
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
+    /**
+     * Write a length, size or similar int according to the {@link #setCompact(boolean) compact} setting.
+     */
+    void writeSize(int size) {
+        if (compact) {
+            writeCompactInt(size);
+        } else {
+            writeInt(size);
+        }
+    }
+
+    int readSize() {
+        return compact ? readCompactInt() : readInt();
+    }
+
+    public void writeClassName(String name) {
+        if (!internClassNames) {
+            writeString(name);
+            return;
+        }
+        if (rewoundTo != Long.MAX_VALUE) {
+            overwroteNames(Long.MAX_VALUE);
+        }
+        if (writtenNames == null) {
+            writtenNames = new ClassNameTable();
+        }
+        int id = writtenNames.idOf(name);
+        if (id != -1) {
+            writeSize(CLASS_NAME_REFERENCE - id);
+        } else {
+            writtenNames.add(name, getWritePositionLong());
+            writeSize(CLASS_NAME_DEFINITION);
+            writeString(name);
+        }
+    }
+
+    public String readClassName() {
+        int size = readSize();
+        if (size >= -1) {
+            return readString(size);
+        }
+        if (size == CLASS_NAME_DEFINITION) {
+            String name = readString();
+            readNames().add(name);
+            return name;
+        }
+        return readNames().name(CLASS_NAME_REFERENCE - size);
+    }
+
+    /**
+     * Read a class name and resolve it. Interned names are only resolved once per scope.
+     *
+     * @param resolver Maps a class name to a class, throwing an {@link ObjectDeserializationException} if it can't
+     */
+    Class<?> readClass(Function<String, Class<?>> resolver) {
+        int size = readSize();
+        if (size >= -1) {
+            return resolver.apply(readString(size));
+        }
+
+        ClassNameTable table = readNames();
+        int id;
+        if (size == CLASS_NAME_DEFINITION) {
+            id = table.add(readString());
+        } else {
+            id = CLASS_NAME_REFERENCE - size;
+        }
+
+        String name = table.name(id);
+        Class<?> clazz = table.resolved(id);
+        if (clazz == null) {
+            clazz = resolver.apply(name);
+            table.setResolved(id, clazz);
+        }
+        return clazz;
+    }
+
+    private ClassNameTable readNames() {
+        if (readNames == null) {
+            readNames = new ClassNameTable();
+        }
+        return readNames;
+    }
+
+    /**
+     * Keeps the written names in step with the bytes when the write position jumps from
+     * {@code from} to {@code to}. Moving back may overwrite definitions, which then have to be
+     * written in full again. Moving forward again, like after filling in a length, keeps the
+     * definitions that were skipped over. Only the current scope is checked, so the write
+     * position should not be moved back past the start of a scope.
+     */
+    void movedWritePosition(long from, long to) {
+        if (to < from) {
+            rewoundTo = Math.min(rewoundTo, to);
+        } else if (to > from && rewoundTo != Long.MAX_VALUE) {
+            overwroteNames(from);
+        }
+    }
+
+    /**
+     * Forget the names defined between the lowest position moved back to and {@code end},
+     * everything up to {@code end} has been written over since.
+     */
+    private void overwroteNames(long end) {
+        if (writtenNames != null) {
+            writtenNames.truncate(rewoundTo, end);
+        }
+        rewoundTo = Long.MAX_VALUE;
+    }
+
+    /**
+     * Start a new class name scope for writing, for blocks that may be skipped or read separately.
+     *
+     * @return The previous scope, to be passed to {@link #exitWriteScope(ClassNameTable)}
+     */
+    ClassNameTable enterWriteScope() {
+        if (rewoundTo != Long.MAX_VALUE) {
+            // The scope is written from here on, over anything defined after the position moved back to
+            overwroteNames(Long.MAX_VALUE);
+        }
+        ClassNameTable previous = writtenNames;
+        writtenNames = null;
+        return previous;
+    }
+
+    void exitWriteScope(ClassNameTable previous) {
+        writtenNames = previous;
+    }
+
+    /**
+     * Start a new class name scope for reading, the counterpart of {@link #enterWriteScope()}.
+     *
+     * @return The previous scope, to be passed to {@link #exitReadScope(ClassNameTable)}
+     */
+    ClassNameTable enterReadScope() {
+        ClassNameTable previous = readNames;
+        readNames = null;
+        return previous;
+    }
+
+    void exitReadScope(ClassNameTable previous) {
+        readNames = previous;
     }
 
     public void writeByteArray(byte[] bites) {
         int size = bites.length;
         ensureCapacity(used + size + 4);
-        writeInt(size);
+        writeSize(size);
         append(bites);
     }
 
     public void writeShort(short value) {
-        this.writeByte((byte) (value & 0xFF));
-        this.writeByte((byte) (value >>> 8));
+        ensureCapacity(used + 2);
+        this.bytes[offset + used] = (byte) value;
+        this.bytes[offset + used + 1] = (byte) (value >>> 8);
+        used += 2;
     }
 
     public void writeByte(byte bite) {
         ensureCapacity(used + 1);
-        this.bytes[used++] = bite;
+        this.bytes[offset + used++] = bite;
     }
 
     /**
      * Returns the current read position of the buffer.
      */
     public int getReadPosition() {
-        return reading;
+        return Math.toIntExact(windowStart + reading);
     }
 
     /**
      * Sets the current read position of the buffer.
      */
     public void setReadPosition(int pos) {
-        reading = pos;
+        setReadPosition((long) pos);
     }
 
     /**
      * Returns the used bytes position of the buffer.
      */
     public int getWritePosition() {
-        return used;
+        return Math.toIntExact(windowStart + used);
     }
 
     /**
      * Sets the used bytes position of the buffer.
      */
     public void setWritePosition(int pos) {
-        used = pos;
+        setWritePosition((long) pos);
     }
 
     /**
@@ -219,22 +967,50 @@ public class GravSerializer implements GravSerializable {
         return this.used - this.reading;
     }
 
+    /*
+     * Long positions, for serializers that can hold more than 2GB (see DirectGravSerializer).
+     * The int versions throw an ArithmeticException when a position does not fit.
+     */
+
+    public long getReadPositionLong() {
+        return windowStart + reading;
+    }
+
+    public void setReadPosition(long pos) {
+        reading = toWindow(pos);
+    }
+
+    public long getWritePositionLong() {
+        return windowStart + used;
+    }
+
+    public void setWritePosition(long pos) {
+        int target = toWindow(pos);
+        movedWritePosition(windowStart + used, pos);
+        used = target;
+    }
+
+    /**
+     * Position in the backing array of a stream position.
+     */
+    private int toWindow(long pos) {
+        if (pos < windowStart && windowStart > 0)
+            throw new IllegalStateException("Position " + pos + " is no longer buffered (GravSerializer)");
+        return Math.toIntExact(pos - windowStart);
+    }
+
+    public long sizeLong() {
+        return size();
+    }
+
     public void writeLong(long l) {
         writeLong(l, false);
     }
 
     public void writeLong(long l, boolean littleEndian) {
-        byte[] bites = new byte[8];
-        if (!littleEndian) {
-            for (int i = 0; i < 8; i++) { //8 bytes in a long
-                bites[i] = ((byte) (l >>> 8 * i & 255)); //Isolate then add each byte BTW it's >>> because i don't want to preserve the sign, since I'm working with bytes, not their number representations unsure if i need it to be >>> but it's safer to have it
-            }
-        } else {
-            for (int i = 0; i < 8; i++) { //8 bytes in a long
-                bites[7 - i] = ((byte) (l >>> 8 * i & 255)); //Isolate then add each byte BTW it's >>> because i don't want to preserve the sign, since I'm working with bytes, not their number representations unsure if i need it to be >>> but it's safer to have it
-            }
-        }
-        append(bites);
+        ensureCapacity(used + 8);
+        putLong(used, l, littleEndian);
+        used += 8;
     }
 
     public void writeDouble(double d) {
@@ -258,25 +1034,88 @@ public class GravSerializer implements GravSerializable {
     }
 
     public void writeInt(int i, boolean littleEndian) {
-        byte[] bites = new byte[4];
+        ensureCapacity(used + 4);
+        putInt(used, i, littleEndian);
+        used += 4;
+    }
+
+    /*
+     * Note: the default (littleEndian = false) layout writes the least significant byte first,
+     * and littleEndian = true writes the most significant byte first. The names are kept
+     * for compatibility, the layout is what is on disk.
+     */
+    private void putInt(int pos, int i, boolean littleEndian) {
+        byte[] b = this.bytes;
+        pos += offset;
+        if (!littleEndian) {
+            b[pos] = (byte) i;
+            b[pos + 1] = (byte) (i >>> 8);
+            b[pos + 2] = (byte) (i >>> 16);
+            b[pos + 3] = (byte) (i >>> 24);
+        } else {
+            b[pos] = (byte) (i >>> 24);
+            b[pos + 1] = (byte) (i >>> 16);
+            b[pos + 2] = (byte) (i >>> 8);
+            b[pos + 3] = (byte) i;
+        }
+    }
 
+    private void putLong(int pos, long l, boolean littleEndian) {
         if (!littleEndian) {
-            for (int i1 = 0; i1 < 4; i1++) //4 bytes in int
-                bites[i1] = ((byte) (i >>> 8 * i1 & 255)); //Isolate then add each byte
+            putInt(pos, (int) l, false);
+            putInt(pos + 4, (int) (l >>> 32), false);
         } else {
-            for (int i1 = 0; i1 < 4; i1++) //4 bytes in int
-                bites[3 - i1] = ((byte) (i >>> 8 * i1 & 255)); //Isolate then add each byte
+            putInt(pos, (int) (l >>> 32), true);
+            putInt(pos + 4, (int) l, true);
         }
-        append(bites);
     }
 
+    private int getInt(int pos, boolean littleEndian) {
+        byte[] b = this.bytes;
+        pos += offset;
+        if (!littleEndian) {
+            return (b[pos] & 0xFF)
+                    | (b[pos + 1] & 0xFF) << 8
+                    | (b[pos + 2] & 0xFF) << 16
+                    | (b[pos + 3] & 0xFF) << 24;
+        } else {
+            return (b[pos] & 0xFF) << 24
+                    | (b[pos + 1] & 0xFF) << 16
+                    | (b[pos + 2] & 0xFF) << 8
+                    | (b[pos + 3] & 0xFF);
+        }
+    }
+
+    private long getLong(int pos, boolean littleEndian) {
+        if (!littleEndian) {
+            return (getInt(pos, false) & 0xFFFFFFFFL) | (long) getInt(pos + 4, false) << 32;
+        } else {
+            return (long) getInt(pos, true) << 32 | (getInt(pos + 4, true) & 0xFFFFFFFFL);
+        }
+    }
+
+    /**
+     * Throws if fewer than {@code len} bytes are left to read.
+     */
+    private void checkReadable(long len) {
+        if (len < 0)
+            throw new NegativeArraySizeException(String.valueOf(len));
+        if (used - reading < len && !fill(len))
+            throw new IllegalStateException("End of byte array reached (GravSerializer)");
+    }
+
+    /**
+     * Write an unsigned LEB128 varint: 7 bits per byte, least significant group first, with the
+     * high bit set on every byte but the last. Negative values take 10 bytes, see
+     * {@link #writeCompactLong(long)} for those.
+     */
     public void writeVarInt(long l) {
-        while (l != 0) {
+        do {
             boolean sig = l >>> 7 != 0;
             byte b = (byte) ((sig ? 0b10000000 : 0) | (l & 0b01111111));
             writeByte(b);
             l >>>= 7;
-        }
+        } while (l != 0);
     }
 
     public long readVarInt() {
@@ -291,6 +1130,31 @@ public class GravSerializer implements GravSerializable {
         return l;
     }
 
+    /**
+     * Write a signed int as a zigzag encoded varint, so small negative values are small too:
+     * values from -64 to 63 take one byte, up to 5 bytes for the largest ones.
+     */
+    public void writeCompactInt(int i) {
+        writeVarInt(((i << 1) ^ (i >> 31)) & 0xFFFFFFFFL);
+    }
+
+    public int readCompactInt() {
+        int v = (int) readVarInt();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * Zigzag encoded varint of a long, see {@link #writeCompactInt(int)}.
+     */
+    public void writeCompactLong(long l) {
+        writeVarInt((l << 1) ^ (l >> 63));
+    }
+
+    public long readCompactLong() {
+        long v = readVarInt();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
     public void writeChar(char ch) {
         writeVarInt((int) ch);
     }
@@ -370,6 +1234,119 @@ public class GravSerializer implements GravSerializable {
         return ret;
     }
 
+    /**
+     * Writes the length followed by every element, in the same layout as calling
+     * {@link #writeInt(int)} for each element, but copied in one pass.
+     */
+    public void writeIntArray(int[] arr) {
+        writeSize(arr.length);
+        ensureWritable((long) arr.length * 4);
+        view(used, arr.length * 4).asIntBuffer().put(arr);
+        used += arr.length * 4;
+    }
+
+    public int[] readIntArray() {
+        int len = readSize();
+        checkReadable((long) len * 4);
+        int[] arr = new int[len];
+        view(reading, len * 4).asIntBuffer().get(arr);
+        reading += len * 4;
+        return arr;
+    }
+
+    /**
+     * Same layout as {@link #writeLong(long)} per element, see {@link #writeIntArray(int[])}.
+     */
+    public void writeLongArray(long[] arr) {
+        writeSize(arr.length);
+        ensureWritable((long) arr.length * 8);
+        view(used, arr.length * 8).asLongBuffer().put(arr);
+        used += arr.length * 8;
+    }
+
+    public long[] readLongArray() {
+        int len = readSize();
+        checkReadable((long) len * 8);
+        long[] arr = new long[len];
+        view(reading, len * 8).asLongBuffer().get(arr);
+        reading += len * 8;
+        return arr;
+    }
+
+    /**
+     * Same layout as {@link #writeShort(short)} per element, see {@link #writeIntArray(int[])}.
+     */
+    public void writeShortArray(short[] arr) {
+        writeSize(arr.length);
+        ensureWritable((long) arr.length * 2);
+        view(used, arr.length * 2).asShortBuffer().put(arr);
+        used += arr.length * 2;
+    }
+
+    public short[] readShortArray() {
+        int len = readSize();
+        checkReadable((long) len * 2);
+        short[] arr = new short[len];
+        view(reading, len * 2).asShortBuffer().get(arr);
+        reading += len * 2;
+        return arr;
+    }
+
+    /**
+     * Same layout as {@link #writeFloat(float)} per element, see {@link #writeIntArray(int[])}.
+     */
+    public void writeFloatArray(float[] arr) {
+        writeSize(arr.length);
+        ensureWritable((long) arr.length * 4);
+        view(used, arr.length * 4).asFloatBuffer().put(arr);
+        used += arr.length * 4;
+    }
+
+    public float[] readFloatArray() {
+        int len = readSize();
+        checkReadable((long) len * 4);
+        float[] arr = new float[len];
+        view(reading, len * 4).asFloatBuffer().get(arr);
+        reading += len * 4;
+        return arr;
+    }
+
+    /**
+     * Same layout as {@link #writeDouble(double)} per element, see {@link #writeIntArray(int[])}.
+     */
+    public void writeDoubleArray(double[] arr) {
+        writeSize(arr.length);
+        ensureWritable((long) arr.length * 8);
+        view(used, arr.length * 8).asDoubleBuffer().put(arr);
+        used += arr.length * 8;
+    }
+
+    public double[] readDoubleArray() {
+        int len = readSize();
+        checkReadable((long) len * 8);
+        double[] arr = new double[len];
+        view(reading, len * 8).asDoubleBuffer().get(arr);
+        reading += len * 8;
+        return arr;
+    }
+
+    /**
+     * A view over part of the backing array in the default (least significant byte first) layout.
+     */
+    private ByteBuffer view(int pos, int len) {
+        return ByteBuffer.wrap(this.bytes, offset + pos, len).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Ensures there is room for {@code len} more bytes, failing instead of overflowing for huge arrays.
+     */
+    private void ensureWritable(long len) {
+        long required = used + len;
+        if (required > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Serializer cannot grow beyond 2GB (requested " + required + " bytes)");
+        ensureCapacity((int) required);
+    }
+
     public void writeObject(Object o) {
         Serializers.serializeObject(this, o);
     }
@@ -378,12 +1355,75 @@ public class GravSerializer implements GravSerializable {
         return (T) Serializers.deserializeObject(this, args);
     }
 
+    /**
+     * Read a serializer written by {@link #writeSerializer(GravSerializer)}, as a slice of this one.
+     *
+     * @see #readSlice(int)
+     */
     public GravSerializer readSerializer() {
-        return new GravSerializer(this.readByteArray());
+        return readSlice(readInt());
+    }
+
+    /**
+     * Read the next {@code length} bytes as a slice of this serializer.
+     *
+     * @see #slice(int, int)
+     */
+    public GravSerializer readSlice(int length) {
+        checkReadable(length);
+        GravSerializer slice;
+        if (source != null) {
+            // Copied, so a kept block does not hold on to a whole window
+            slice = new GravSerializer(Arrays.copyOfRange(bytes, offset + reading, offset + reading + length), false);
+        } else {
+            slice = new GravSerializer(this, reading, length);
+        }
+        reading += length;
+        return slice;
+    }
+
+    /**
+     * A serializer over {@code length} bytes of this one starting at {@code start}, sharing the same
+     * backing array instead of copying it. Slices are meant for reading: a slice, or this serializer,
+     * copies its data before it is first written to, so neither ever sees the other's writes.
+     * <p>
+     * Slices start with their own read position and class name scope.
+     */
+    public GravSerializer slice(int start, int length) {
+        long pos = start - windowStart;
+        if (pos < 0 || length < 0 || pos > used - length)
+            throw new IndexOutOfBoundsException("Slice " + start + "+" + length + " out of bounds for size " + used);
+        return new GravSerializer(this, (int) pos, length);
     }
 
     public void writeSerializer(GravSerializer serializer) {
-        this.writeByteArray(serializer.toByteArray());
+        writeInt(serializer.size());
+        append(serializer);
+    }
+
+    /**
+     * Reserve space for a length prefix in the same layout as {@link #writeInt(int)}, so a block
+     * can be written in place and its length filled in afterwards.
+     *
+     * @return The position to pass to {@link #endLengthPrefix(long)}
+     */
+    long beginLengthPrefix() {
+        long pos = windowStart + used;
+        if (openPrefixes++ == 0)
+            firstOpenPrefix = pos;
+        writeInt(0);
+        return pos;
+    }
+
+    /**
+     * Fill in a length prefix with the number of bytes written since {@link #beginLengthPrefix()}.
+     */
+    void endLengthPrefix(long pos) {
+        ensureCapacity(used);
+        int start = (int) (pos - windowStart);
+        putInt(start, used - start - 4, false);
+        if (--openPrefixes == 0)
+            firstOpenPrefix = -1;
     }
 
     public long readLong() {
@@ -391,23 +1431,17 @@ public class GravSerializer implements GravSerializable {
     }
 
     public long readLong(boolean littleEndian) {
-        long out = 0L;
-        if (!littleEndian) {
-            for (int i = 0; i < 8; i++) {
-                out |= ((long) readByte() << (i * 8)) & ((long) 255 << (i * 8));
-            }
-        } else {
-            for (int i = 7; i >= 0; i--) {
-                out |= ((long) readByte() << (i * 8)) & ((long) 255 << (i * 8));
-            }
-        }
+        checkReadable(8);
+        long out = getLong(reading, littleEndian);
+        reading += 8;
         return out;
     }
 
     public short readShort() {
-        byte b1 = this.readByte();
-        byte b2 = this.readByte();
-        return (short) (b2 << 8 | (b1 & 0xFF));
+        checkReadable(2);
+        short out = (short) (bytes[offset + reading + 1] << 8 | (bytes[offset + reading] & 0xFF));
+        reading += 2;
+        return out;
     }
 
     public boolean readBoolean() {
@@ -431,14 +1465,14 @@ public class GravSerializer implements GravSerializable {
     }
 
     public byte[] readByteArray() {
-        int length = readInt();
+        int length = readSize();
         return readBytes(length);
     }
 
     public byte readByte() {
-        if (reading >= used)
+        if (reading >= used && !fill(1))
             throw new IllegalStateException("End of byte array reached (GravSerializer)");
-        return bytes[reading++];
+        return bytes[offset + reading++];
     }
 
     public byte[] readBytes(int len) {
@@ -456,28 +1490,57 @@ public class GravSerializer implements GravSerializable {
     }
 
     public int readBytes(byte[] buf, int off, int len) {
+        fill(len);
         int count = Math.min(len, used - reading);
-        System.arraycopy(bytes, reading, buf, off, count);
+        System.arraycopy(bytes, offset + reading, buf, off, count);
         reading += count;
         return count;
     }
 
     public boolean hasNext() {
-        return reading < used;
+        return reading < used || fill(1);
     }
 
     public void append(GravSerializer serializer) {
-        append(serializer.bytes, serializer.used);
+        serializer.appendTo(this);
+    }
+
+    /**
+     * Update a checksum with {@code length} bytes of data starting at {@code start}.
+     */
+    void checksum(CRC32 crc, int start, int length) {
+        crc.update(bytes, offset + toWindow(start), length);
+    }
+
+    /**
+     * Append all of this serializer's data to {@code target}.
+     */
+    void appendTo(GravSerializer target) {
+        target.append(bytes, offset, used);
+    }
+
+    /**
+     * Append the remaining bytes of {@code buffer}, leaving its position unchanged.
+     */
+    void append(ByteBuffer buffer) {
+        int len = buffer.remaining();
+        ensureWritable(len);
+        buffer.duplicate().get(bytes, offset + used, len);
+        used += len;
     }
 
     public void writeUUID(UUID id) {
         ensureCapacity(used + 16);
-        this.writeLong(id.getMostSignificantBits());
-        this.writeLong(id.getLeastSignificantBits());
+        putLong(used, id.getMostSignificantBits(), false);
+        putLong(used + 8, id.getLeastSignificantBits(), false);
+        used += 16;
     }
 
     public UUID readUUID() {
-        return new UUID(this.readLong(), this.readLong());
+        checkReadable(16);
+        UUID id = new UUID(getLong(reading, false), getLong(reading + 8, false));
+        reading += 16;
+        return id;
     }
 
     public int readInt() {
@@ -485,17 +1548,9 @@ public class GravSerializer implements GravSerializable {
     }
 
     public int readInt(boolean littleEndian) {
-        int out = 0;
-
-        if (!littleEndian) {
-            for (int i = 0; i < 4; i++) {
-                out |= ((int) readByte() << (i * 8)) & (255 << (i * 8));
-            }
-        } else {
-            for (int i = 3; i >= 0; i--) {
-                out |= ((int) readByte() << (i * 8)) & (255 << (i * 8));
-            }
-        }
+        checkReadable(4);
+        int out = getInt(reading, littleEndian);
+        reading += 4;
         return out;
     }
 
@@ -504,7 +1559,59 @@ public class GravSerializer implements GravSerializable {
     }
 
     public byte[] toByteArray() {
-        return Arrays.copyOf(bytes, used);
+        return Arrays.copyOfRange(bytes, offset, offset + used);
+    }
+
+    /**
+     * Write all data to a channel, without copying it.
+     *
+     * @return The number of bytes written
+     */
+    public long writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, used);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return used;
+    }
+
+    public void save(Path path) throws IOException {
+        save(path, null);
+    }
+
+    /**
+     * Write all data to a file, replacing it atomically: the data is written to a temporary file
+     * in the same directory which is then moved over {@code path}. Readers never see a partially
+     * written file, and the old file is kept if writing fails.
+     *
+     * @param compressor Compressor to write the file with, or null
+     */
+    public void save(Path path, Compressor compressor) throws IOException {
+        Path target = path.toAbsolutePath();
+        // Not Files.createTempFile, that would give the saved file owner-only permissions
+        Path temp = target.resolveSibling(target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                if (compressor == null) {
+                    writeTo(channel);
+                } else {
+                    ByteBuffer buffer = ByteBuffer.wrap(compressor.compress(toByteArray()));
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+                // The data must be on disk before the rename is, or a crash can leave an empty file
+                channel.force(false);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
     }
 
     public void writeToStream(OutputStream stream) throws IOException {
@@ -531,14 +1638,11 @@ public class GravSerializer implements GravSerializable {
     }
 
     public static GravSerializer deserialize(GravSerializer serializer) {
-        int length = serializer.readInt();
-        byte[] arr = serializer.readBytes(length);
-        return new GravSerializer(arr);
+        return serializer.readSerializer();
     }
 
     @Override
     public void serialize(GravSerializer serializer) {
-        serializer.writeInt(used);
-        serializer.append(bytes, used);
+        serializer.writeSerializer(this);
     }
 }
@@ -0,0 +1,155 @@
+package net.ultragrav.serializer;
+
+import java.util.ArrayDeque;
+
+/**
+ * A pool of reusable {@link GravSerializer}s, to avoid allocating and regrowing a new buffer
+ * for every object that is serialized.
+ * <p>
+ * Each thread has its own buffers, grouped by capacity in power of two size classes. Buffers
+ * larger than the retained capacity limit are not kept, so one huge document does not pin
+ * its buffer forever.
+ * <pre>{@code
+ * try (GravSerializerPool.Lease lease = GravSerializerPool.shared().lease()) {
+ *     GravSerializer serializer = lease.serializer();
+ *     meta.serialize(serializer);
+ *     out.write(serializer.toByteArray());
+ * }
+ * }</pre>
+ * A serializer must not be used after it was released, which includes slices read from it.
+ */
+public final class GravSerializerPool {
+    public static final int MIN_CAPACITY = 256;
+    public static final int DEFAULT_MAX_RETAINED_CAPACITY = 1 << 20;
+    public static final int DEFAULT_BUFFERS_PER_SIZE_CLASS = 4;
+
+    private static final GravSerializerPool SHARED = new GravSerializerPool();
+
+    private final int maxRetainedCapacity;
+    private final int buffersPerSizeClass;
+    private final int sizeClasses;
+    private final ThreadLocal<ArrayDeque<GravSerializer>[]> buckets;
+
+    public GravSerializerPool() {
+        this(DEFAULT_MAX_RETAINED_CAPACITY, DEFAULT_BUFFERS_PER_SIZE_CLASS);
+    }
+
+    /**
+     * @param maxRetainedCapacity Largest buffer capacity that is kept for reuse
+     * @param buffersPerSizeClass Number of buffers kept per size class and thread
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public GravSerializerPool(int maxRetainedCapacity, int buffersPerSizeClass) {
+        if (maxRetainedCapacity < MIN_CAPACITY)
+            throw new IllegalArgumentException("Retained capacity must be at least " + MIN_CAPACITY);
+        if (buffersPerSizeClass < 0)
+            throw new IllegalArgumentException("Negative buffer count: " + buffersPerSizeClass);
+        this.maxRetainedCapacity = maxRetainedCapacity;
+        this.buffersPerSizeClass = buffersPerSizeClass;
+        this.sizeClasses = sizeClass(maxRetainedCapacity) + 1;
+        this.buckets = ThreadLocal.withInitial(() -> new ArrayDeque[sizeClasses]);
+    }
+
+    /**
+     * The pool used by the library itself.
+     */
+    public static GravSerializerPool shared() {
+        return SHARED;
+    }
+
+    public GravSerializer acquire() {
+        return acquire(MIN_CAPACITY);
+    }
+
+    /**
+     * Get an empty serializer, reusing a released one when possible.
+     *
+     * @param expectedSize Expected number of bytes that will be written
+     */
+    public GravSerializer acquire(int expectedSize) {
+        expectedSize = Math.max(expectedSize, MIN_CAPACITY);
+        if (expectedSize <= maxRetainedCapacity) {
+            ArrayDeque<GravSerializer>[] buckets = this.buckets.get();
+            // Buffers in size class n have at least MIN_CAPACITY << n bytes, round up
+            int first = 32 - Integer.numberOfLeadingZeros((expectedSize - 1) / MIN_CAPACITY);
+            for (int i = first; i < sizeClasses; i++) {
+                ArrayDeque<GravSerializer> bucket = buckets[i];
+                GravSerializer serializer = bucket == null ? null : bucket.pollFirst();
+                if (serializer != null) {
+                    serializer.pooled = false;
+                    return serializer;
+                }
+            }
+        }
+        return new GravSerializer(expectedSize);
+    }
+
+    /**
+     * Return a serializer to the pool. It is cleared, and dropped if it grew beyond the
+     * retained capacity, its data is still shared with slices or it is streaming.
+     */
+    public void release(GravSerializer serializer) {
+        if (serializer.pooled)
+            throw new IllegalStateException("Serializer was already released");
+
+        int capacity = serializer.trueSize();
+        if (serializer instanceof DirectGravSerializer || serializer.isStreaming() || serializer.isShared() || capacity < MIN_CAPACITY || capacity > maxRetainedCapacity)
+            return;
+
+        ArrayDeque<GravSerializer>[] buckets = this.buckets.get();
+        int sizeClass = sizeClass(capacity);
+        ArrayDeque<GravSerializer> bucket = buckets[sizeClass];
+        if (bucket == null) {
+            bucket = buckets[sizeClass] = new ArrayDeque<>(buffersPerSizeClass);
+        }
+        if (bucket.size() >= buffersPerSizeClass)
+            return;
+
+        serializer.clear();
+        serializer.setClassNameInterning(false);
+        serializer.setKeyInterning(false);
+        serializer.setCompact(false);
+        serializer.pooled = true;
+        bucket.addFirst(serializer);
+    }
+
+    public Lease lease() {
+        return new Lease(acquire());
+    }
+
+    public Lease lease(int expectedSize) {
+        return new Lease(acquire(expectedSize));
+    }
+
+    /**
+     * Index of the largest size class a buffer of this capacity fits in.
+     */
+    private static int sizeClass(int capacity) {
+        return 31 - Integer.numberOfLeadingZeros(capacity / MIN_CAPACITY);
+    }
+
+    /**
+     * A serializer that goes back to the pool when closed.
+     */
+    public final class Lease implements AutoCloseable {
+        private GravSerializer serializer;
+
+        private Lease(GravSerializer serializer) {
+            this.serializer = serializer;
+        }
+
+        public GravSerializer serializer() {
+            if (serializer == null)
+                throw new IllegalStateException("Lease was already closed");
+            return serializer;
+        }
+
+        @Override
+        public void close() {
+            if (serializer != null) {
+                release(serializer);
+                serializer = null;
+            }
+        }
+    }
+}
@@ -3,19 +3,45 @@ package net.ultragrav.serializer;
 import net.ultragrav.serializer.util.JsonUtil;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.locks.Lock;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 public class JsonMeta implements GravSerializable {
     private static final int FORMAT_VERSION = 2;
+    // Version 2 with compact lengths, written when the serializer is in compact mode
+    private static final int COMPACT_FORMAT_VERSION = 3;
+    // Followed by a byte of FLAG_ bits, written when the serializer interns keys
+    private static final int FLAGS_FORMAT_VERSION = 4;
+    private static final int FLAG_COMPACT = 1;
+    private static final int FLAG_INTERNED_KEYS = 2;
+    /**
+     * Default number of entries, counting those of nested JsonMetas, from which serializeParallel
+     * serializes a subtree on its own.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+
     private static final String CLASS_FIELD = "__class";
     private static final String SERIALIZED_PREFIX = "__##";
+    // Returned by reads under the shared lock that have to be retried with the exclusive lock,
+    // and by inSubtree if the path is not in a subtree with its own lock
+    private static final Object NEEDS_WRITE = new Object();
 
     private final Map<String, Object> data = new HashMap<>();
     public final Map<String, GravSerializer> toDeserialize = new HashMap<>();
 
+    // Entries of a lazily read JsonMeta that were not accessed yet, see deserializeLazy
+    private volatile Map<String, Object> pending = null;
+    private GravSerializer pendingSource = null;
+
+    // Cached by snapshot(), cleared for this meta and its parents when it changes
+    private volatile JsonMetaSnapshot snapshot = null;
+
     private String delimiter = "\\.";
     private String[] path = new String[0];
     private volatile JsonMeta parent = null;
@@ -75,10 +101,15 @@ public class JsonMeta implements GravSerializable {
     }
 
     public List<String> getKeys() {
+        Lock lock = this.lock.isSharedReads() ? this.lock.readLock() : this.lock;
         lock.lock();
         try {
             List<String> keys = new ArrayList<>(this.data.keySet());
             keys.addAll(this.toDeserialize.keySet());
+            Map<String, Object> pending = this.pending;
+            if (pending != null) {
+                keys.addAll(pending.keySet());
+            }
             return keys;
         } finally {
             lock.unlock();
@@ -89,8 +120,150 @@ public class JsonMeta implements GravSerializable {
         return lock;
     }
 
+    /**
+     * Let get, has, getKeys, asMap, asFlatMap and serialize on this tree run concurrently with
+     * each other, taking the shared side of the tree's lock ({@link RefocusableLock#readLock()})
+     * instead of the exclusive one. Mutations still take it exclusively. Reads that have to
+     * decode entries that were read lazily or kept as bytes take it exclusively too.
+     * <p>
+     * The setting belongs to the root of the tree. Off by default, since while a thread is in
+     * one of those reads, for example in the serialize method of a value, it must not modify
+     * the tree: the shared lock cannot be upgraded.
+     */
+    public void setSharedReads(boolean sharedReads) {
+        getRoot().lock.setSharedReads(sharedReads);
+    }
+
+    /**
+     * Report every acquisition of the locks of this tree to {@code metrics}, or stop reporting
+     * with null. The setting belongs to the root of the tree.
+     *
+     * @see LockStatistics
+     */
+    public void setLockMetrics(LockMetrics metrics) {
+        getRoot().lock.setMetrics(metrics);
+    }
+
+    /**
+     * Give the JsonMetas {@code depth} levels below the root locks of their own, so changes to
+     * different subtrees don't contend. For example with a depth of 2, setting
+     * {@code stats.Bedwars.kills} and {@code stats.Skywars.wins} only locks {@code stats.Bedwars}
+     * and {@code stats.Skywars}. 0 turns it off, which is the default.
+     * <p>
+     * The getLock of a JsonMeta in a subtree then only locks that subtree, while the lock of the
+     * root, and of any JsonMeta above the lock depth, still locks the whole tree. get, has, set
+     * and remove with a path that leads into a subtree only lock that subtree, other methods
+     * lock the JsonMeta they are called on. While holding the lock of a subtree, a thread must
+     * not lock the JsonMetas above it.
+     * <p>
+     * The setting belongs to the root of the tree, and must not be changed while holding the lock
+     * of a JsonMeta in it.
+     */
+    public void setSubtreeLocking(int depth) {
+        if (depth < 0)
+            throw new IllegalArgumentException("Negative subtree lock depth: " + depth);
+        getRoot().lock.setSubtreeLockDepth(depth);
+    }
+
+    /**
+     * With subtree locking, run an operation on the JsonMeta a path leads into at the lock depth,
+     * with the rest of the path, so it only locks that subtree. The intention lock is held
+     * meanwhile, so the subtree can't be moved.
+     *
+     * @return The operation's result, or NEEDS_WRITE if the path does not lead into a subtree
+     */
+    private Object inSubtree(String[] path, BiFunction<JsonMeta, String[], Object> operation) {
+        int distance = lock.getSubtreeDistance();
+        if (distance == 0 || path.length <= distance)
+            return NEEDS_WRITE;
+
+        Lock intention = lock.intentionLock();
+        intention.lock();
+        try {
+            if (lock.getSubtreeDistance() != distance)
+                return NEEDS_WRITE;
+            // Everything above the lock depth only changes under the exclusive lock of the root
+            JsonMeta current = this;
+            for (int i = 0; i < distance; i++) {
+                if (current.pending != null)
+                    return NEEDS_WRITE;
+                Object o = current.data.get(path[i]);
+                if (!(o instanceof JsonMeta) || ((JsonMeta) o).parent != current)
+                    return NEEDS_WRITE;
+                current = (JsonMeta) o;
+            }
+            return operation.apply(current, Arrays.copyOfRange(path, distance, path.length));
+        } finally {
+            intention.unlock();
+        }
+    }
+
+    /**
+     * Take the lock for a method that reads this meta and its children. With shared reads that is
+     * the shared lock, unless lazily read entries have to be decoded. The returned lock is held.
+     */
+    private Lock lockForRead() {
+        if (lock.isSharedReads()) {
+            Lock read = lock.readLock();
+            read.lock();
+            if (isLoaded())
+                return read;
+            read.unlock();
+        }
+        lock.lock();
+        return lock;
+    }
+
+    /**
+     * Whether neither this meta nor its children have lazily read entries left.
+     */
+    private boolean isLoaded() {
+        if (pending != null)
+            return false;
+        for (Object value : data.values()) {
+            if (value instanceof JsonMeta && ((JsonMeta) value).parent == this && !((JsonMeta) value).isLoaded())
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Walk the first {@code length} segments of a path without modifying anything.
+     *
+     * @return The JsonMeta at that path, null if there is none or NEEDS_WRITE if a lazily read
+     * JsonMeta is in the way
+     */
+    private Object walkShared(String[] path, int length) {
+        JsonMeta current = this;
+        for (int i = 0; i < length; i++) {
+            if (current.pending != null)
+                return NEEDS_WRITE;
+            Object o = current.data.get(path[i]);
+            if (!(o instanceof JsonMeta))
+                return null;
+            current = (JsonMeta) o;
+        }
+        return current;
+    }
+
+    /**
+     * A path split on dots, to keep in a constant and pass to get, set and the like instead of a
+     * path string, which is split on every call.
+     */
+    public static JsonPath path(String path) {
+        return JsonPath.of(path);
+    }
+
+    private String[] split(String path) {
+        return JsonPath.split(path, delimiter);
+    }
+
     public <T> T get(String path, Object... constructionArgs) {
-        return get(path.split(delimiter), constructionArgs);
+        return get(split(path), constructionArgs);
+    }
+
+    public <T> T get(JsonPath path, Object... constructionArgs) {
+        return get(path.segments(), constructionArgs);
     }
 
     @SuppressWarnings("unchecked")
@@ -117,11 +290,35 @@ public class JsonMeta implements GravSerializable {
 
     @SuppressWarnings("unchecked")
     public <T> T get(String[] path, Object... constructionArgs) {
+        Object result = inSubtree(path, (subtree, rest) -> subtree.get(rest, constructionArgs));
+        if (result != NEEDS_WRITE)
+            return (T) result;
+
+        if (path.length > 0 && lock.isSharedReads()) {
+            Lock read = lock.readLock();
+            read.lock();
+            try {
+                Object node = walkShared(path, path.length - 1);
+                if (node != NEEDS_WRITE) {
+                    if (node == null)
+                        return null;
+                    JsonMeta current = (JsonMeta) node;
+                    String s = path[path.length - 1];
+                    // Values kept as bytes are decoded and stored on access
+                    if (current.pending == null && !current.toDeserialize.containsKey(s))
+                        return (T) current.data.get(s);
+                }
+            } finally {
+                read.unlock();
+            }
+        }
+
         lock.lock();
         try {
             JsonMeta current = this;
             for (int i = 0, pathLength = path.length; i < pathLength; i++) {
                 String s = path[i];
+                current.resolve(s);
                 Object o = current.data.get(s);
                 if (o instanceof JsonMeta) {
                     current = (JsonMeta) o;
@@ -157,15 +354,43 @@ public class JsonMeta implements GravSerializable {
     }
 
     public boolean has(String path) {
-        return has(path.split(delimiter));
+        return has(split(path));
+    }
+
+    public boolean has(JsonPath path) {
+        return has(path.segments());
     }
 
     public boolean has(String[] path) {
+        Object result = inSubtree(path, JsonMeta::has);
+        if (result != NEEDS_WRITE)
+            return (Boolean) result;
+
+        if (lock.isSharedReads()) {
+            Lock read = lock.readLock();
+            read.lock();
+            try {
+                Object node = walkShared(path, path.length - 1);
+                if (node == null)
+                    return false;
+                if (node != NEEDS_WRITE) {
+                    JsonMeta current = (JsonMeta) node;
+                    Map<String, Object> pending = current.pending;
+                    return current.data.containsKey(path[path.length - 1])
+                            || current.toDeserialize.containsKey(path[path.length - 1])
+                            || pending != null && pending.containsKey(path[path.length - 1]);
+                }
+            } finally {
+                read.unlock();
+            }
+        }
+
         lock.lock();
         try {
             JsonMeta current = this;
             for (int i = 0, pathLength = path.length; i < pathLength - 1; i++) {
                 String s = path[i];
+                current.resolve(s);
                 Object o = current.data.get(s);
                 if (o instanceof JsonMeta) {
                     current = (JsonMeta) o;
@@ -173,8 +398,10 @@ public class JsonMeta implements GravSerializable {
                     return false;
                 }
             }
+            Map<String, Object> pending = current.pending;
             return current.data.containsKey(path[path.length - 1])
-                    || current.toDeserialize.containsKey(path[path.length - 1]);
+                    || current.toDeserialize.containsKey(path[path.length - 1])
+                    || pending != null && pending.containsKey(path[path.length - 1]);
         } finally {
             lock.unlock();
         }
@@ -185,6 +412,18 @@ public class JsonMeta implements GravSerializable {
     }
 
     public <T> T getOrSet(String path, T defaultValue, boolean markDirty, Object... constructionArgs) {
+        return getOrSet(split(path), defaultValue, markDirty, constructionArgs);
+    }
+
+    public <T> T getOrSet(JsonPath path, T defaultValue, Object... constructionArgs) {
+        return getOrSet(path.segments(), defaultValue, markDirtyByDefault, constructionArgs);
+    }
+
+    public <T> T getOrSet(JsonPath path, T defaultValue, boolean markDirty, Object... constructionArgs) {
+        return getOrSet(path.segments(), defaultValue, markDirty, constructionArgs);
+    }
+
+    private <T> T getOrSet(String[] path, T defaultValue, boolean markDirty, Object... constructionArgs) {
         lock.lock();
         try {
             T obj = get(path, constructionArgs);
@@ -208,16 +447,19 @@ public class JsonMeta implements GravSerializable {
      * @return Value or default
      */
     public <T> T getOrDefault(String path, T defaultValue, Object... constructionArgs) {
-        lock.lock();
-        try {
-            T obj = get(path, constructionArgs);
-            if (obj == null) {
-                return defaultValue;
-            }
-            return obj;
-        } finally {
-            lock.unlock();
+        return getOrDefault(split(path), defaultValue, constructionArgs);
+    }
+
+    public <T> T getOrDefault(JsonPath path, T defaultValue, Object... constructionArgs) {
+        return getOrDefault(path.segments(), defaultValue, constructionArgs);
+    }
+
+    private <T> T getOrDefault(String[] path, T defaultValue, Object... constructionArgs) {
+        T obj = get(path, constructionArgs);
+        if (obj == null) {
+            return defaultValue;
         }
+        return obj;
     }
 
     public <T> T getOrCompute(String path, Supplier<T> defaultProvider, Object... constructionArgs) {
@@ -225,6 +467,18 @@ public class JsonMeta implements GravSerializable {
     }
 
     public <T> T getOrCompute(String path, Supplier<T> defaultProvider, boolean markDirty, Object... constructionArgs) {
+        return getOrCompute(split(path), defaultProvider, markDirty, constructionArgs);
+    }
+
+    public <T> T getOrCompute(JsonPath path, Supplier<T> defaultProvider, Object... constructionArgs) {
+        return getOrCompute(path.segments(), defaultProvider, markDirtyByDefault, constructionArgs);
+    }
+
+    public <T> T getOrCompute(JsonPath path, Supplier<T> defaultProvider, boolean markDirty, Object... constructionArgs) {
+        return getOrCompute(path.segments(), defaultProvider, markDirty, constructionArgs);
+    }
+
+    private <T> T getOrCompute(String[] path, Supplier<T> defaultProvider, boolean markDirty, Object... constructionArgs) {
         lock.lock();
         try {
             T obj = get(path, constructionArgs);
@@ -245,6 +499,14 @@ public class JsonMeta implements GravSerializable {
         set(path, null, markDirty);
     }
 
+    public void remove(JsonPath path) {
+        set(path, null);
+    }
+
+    public void remove(JsonPath path, boolean markDirty) {
+        set(path, null, markDirty);
+    }
+
     public <T> JsonMeta setSerializedList(String path, Iterable<T> list, Function<T, JsonMeta> serializer) {
         List<JsonMeta> serializedList = new ArrayList<>();
         for (T t : list) {
@@ -266,11 +528,19 @@ public class JsonMeta implements GravSerializable {
     }
 
     public JsonMeta set(String path, Object value) {
-        return set(path.split(delimiter), value);
+        return set(split(path), value);
     }
 
     public JsonMeta set(String path, Object value, boolean markDirty) {
-        return set(path.split(delimiter), value, markDirty);
+        return set(split(path), value, markDirty);
+    }
+
+    public JsonMeta set(JsonPath path, Object value) {
+        return set(path.segments(), value);
+    }
+
+    public JsonMeta set(JsonPath path, Object value, boolean markDirty) {
+        return set(path.segments(), value, markDirty);
     }
 
     public JsonMeta set(String[] path, Object value) {
@@ -281,11 +551,16 @@ public class JsonMeta implements GravSerializable {
      * Set a key to a value. Using markDirty=false will be faster.
      */
     public JsonMeta set(String[] path, Object value, boolean markDirty) { //Doesn't use recursion, may change later
+        Object subtreeValue = value;
+        if (inSubtree(path, (subtree, rest) -> subtree.set(rest, subtreeValue, markDirty)) != NEEDS_WRITE)
+            return this;
+
         lock.lock();
         try {
             JsonMeta current = this;
             for (int i = 0, pathLength = path.length; i < pathLength; i++) {
                 String s = path[i];
+                current.resolve(s);
                 Object o = current.data.get(s);
 
                 if (i == pathLength - 1) {
@@ -326,6 +601,7 @@ public class JsonMeta implements GravSerializable {
 
                     // Get rid of toDeserialize
                     current.toDeserialize.remove(s);
+                    current.invalidateSnapshot();
 
                     if (markDirty) {
                         current.markDirty0(s);
@@ -366,6 +642,7 @@ public class JsonMeta implements GravSerializable {
 
                     //Put the next JsonMeta
                     current.data.put(s, next);
+                    current.invalidateSnapshot();
                     current = next;
                 } else {
                     current = (JsonMeta) o;
@@ -389,6 +666,9 @@ public class JsonMeta implements GravSerializable {
         meta.lock.lock();
 
         try {
+            loadAll();
+            meta.loadAll();
+
             // Go through all data elements
             for (String key : meta.getKeys()) {
 
@@ -406,6 +686,7 @@ public class JsonMeta implements GravSerializable {
 
             // Since toDeserialize can never contain JsonMetas, we can just dump all the elements
             this.toDeserialize.putAll(meta.toDeserialize);
+            invalidateSnapshot();
         } finally {
             meta.lock.unlock();
             lock.unlock();
@@ -432,6 +713,10 @@ public class JsonMeta implements GravSerializable {
 
         // Switch to the new lock
         Lock current = child.lock.getCurrentLock();
+        if (child.parent != null && child.parent != parent) {
+            // The previous parent's snapshot may contain the child's
+            child.parent.invalidateSnapshot();
+        }
         child.parent = parent;
         current.unlock();
 
@@ -447,7 +732,11 @@ public class JsonMeta implements GravSerializable {
     }
 
     public void markDirty(String path) {
-        markDirty(path.split(delimiter));
+        markDirty(split(path));
+    }
+
+    public void markDirty(JsonPath path) {
+        markDirty(path.segments());
     }
 
     public void markDirty(String[] path) {
@@ -473,6 +762,7 @@ public class JsonMeta implements GravSerializable {
     }
 
     private void markDirtyRecursive() {
+        loadAll();
         for (Map.Entry<String, Object> ent : data.entrySet()) {
             record.markDirty(ent.getKey());
             if (ent.getValue() instanceof JsonMeta) {
@@ -486,6 +776,8 @@ public class JsonMeta implements GravSerializable {
     }
 
     private void markDirtyDiff(JsonMeta other) {
+        loadAll();
+        other.loadAll();
         boolean changed = false;
         for (Map.Entry<String, Object> ent : data.entrySet()) {
             if (!other.data.containsKey(ent.getKey())) {
@@ -538,6 +830,7 @@ public class JsonMeta implements GravSerializable {
             indent.append("  ");
         }
 
+        loadAll();
         StringBuilder builder = new StringBuilder();
         builder.append("{").append("\n");
         for (Map.Entry<String, Object> entry : data.entrySet()) {
@@ -564,6 +857,7 @@ public class JsonMeta implements GravSerializable {
             indent.append("  ");
         }
 
+        loadAll();
         StringBuilder builder = new StringBuilder();
         builder.append("{").append("\n");
         for (Map.Entry<String, Object> entry : data.entrySet()) {
@@ -586,6 +880,7 @@ public class JsonMeta implements GravSerializable {
             indent.append("  ");
         }
 
+        loadAll();
         StringBuilder builder = new StringBuilder();
         builder.append("{").append("\n");
         for (Map.Entry<String, Object> entry : data.entrySet()) {
@@ -613,6 +908,7 @@ public class JsonMeta implements GravSerializable {
      * @return JSON representation of this JsonMeta
      */
     public String toJson() {
+        loadAll();
         StringBuilder builder = new StringBuilder();
         builder.append("{\n");
         String objs = data.entrySet().stream()
@@ -630,6 +926,7 @@ public class JsonMeta implements GravSerializable {
     public JsonMeta toValidJson() {
         lock.lock();
         try {
+            loadAll();
             JsonMeta ret = new JsonMeta(markDirtyByDefault);
             for (Map.Entry<String, Object> ent : this.data.entrySet()) {
                 if (ent.getValue() == null)
@@ -650,9 +947,11 @@ public class JsonMeta implements GravSerializable {
                 } else if (ent.getValue() instanceof Boolean) {
                     ret.set(ent.getKey(), ent.getValue());
                 } else {
-                    GravSerializer ser = new GravSerializer();
-                    ser.writeObject(ent.getValue());
-                    ret.set(SERIALIZED_PREFIX + ent.getKey(), ser.toString());
+                    try (GravSerializerPool.Lease lease = GravSerializerPool.shared().lease()) {
+                        GravSerializer ser = lease.serializer();
+                        ser.writeObject(ent.getValue());
+                        ret.set(SERIALIZED_PREFIX + ent.getKey(), ser.toString());
+                    }
                 }
             }
 
@@ -675,6 +974,7 @@ public class JsonMeta implements GravSerializable {
     public JsonMeta fromValidJson() {
         lock.lock();
         try {
+            loadAll();
             JsonMeta ret = new JsonMeta(markDirtyByDefault);
             for (Map.Entry<String, Object> ent : this.data.entrySet()) {
                 if (ent.getValue() instanceof JsonMeta) {
@@ -738,6 +1038,7 @@ public class JsonMeta implements GravSerializable {
             indent.append("  ");
         }
 
+        loadAll();
         StringBuilder builder = new StringBuilder();
         for (Map.Entry<String, Object> entry : data.entrySet()) {
             Object val = entry.getValue();
@@ -815,63 +1116,277 @@ public class JsonMeta implements GravSerializable {
     }
 
     public void serialize(GravSerializer serializer, boolean reduced) {
-        lock.lock();
+        // Reduced serialization gets fields by path, which may have to decode them
+        Lock lock;
+        if (reduced) {
+            lock = this.lock;
+            lock.lock();
+        } else {
+            lock = lockForRead();
+        }
         try {
-            serializer.writeByte((byte) 2);
+            serialize0(serializer, reduced);
+        } finally {
+            lock.unlock();
+        }
+    }
 
-            serializer.writeInt(FORMAT_VERSION);
+    private void serialize0(GravSerializer serializer, boolean reduced) {
+        if (!reduced) {
+            loadAll();
+        }
+        int len = reduced ? record.updatedFields.size() : (this.data.size() + this.toDeserialize.size());
+        writeHeader(serializer, reduced, len);
 
-            int len = reduced ? record.updatedFields.size() : (this.data.size() + this.toDeserialize.size());
+        if (reduced) {
+            for (String updatedField : record.getUpdatedFields()) {
+                Object val = get(updatedField);
+                serializeObject(serializer, updatedField, val, true);
+            }
+        } else {
+            for (Map.Entry<String, Object> entry : this.data.entrySet()) {
+                String key = entry.getKey();
+                Object val = entry.getValue();
+                serializeObject(serializer, key, val, false);
+            }
+            for (Map.Entry<String, GravSerializer> entry : this.toDeserialize.entrySet()) {
+                writeRaw(serializer, entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #serialize(GravSerializer)}, with large subtrees serialized in parallel on
+     * the common ForkJoinPool, see {@link #serializeParallel(GravSerializer, ForkJoinPool, int)}.
+     */
+    public void serializeParallel(GravSerializer serializer) {
+        serializeParallel(serializer, ForkJoinPool.commonPool(), DEFAULT_PARALLEL_THRESHOLD);
+    }
 
-            serializer.writeBoolean(reduced); //Probably not needed but who cares about an extra couple bytes
-            serializer.writeInt(len);
+    /**
+     * Same as {@link #serialize(GravSerializer)}, but the entries of the JsonMetas with at least
+     * {@code threshold} entries (counting the entries of their children) are split into runs of
+     * about that many, which are serialized on {@code pool} into separate buffers and then written
+     * in order. The output is the same.
+     * <p>
+     * Falls back to serializing sequentially if this meta has fewer entries than the threshold,
+     * the serializer interns keys (their ids are numbered across the whole document) or it
+     * contains JsonMetas of other parents. The calling thread holds the lock meanwhile, so the
+     * serialize methods of values must not lock this tree.
+     */
+    public void serializeParallel(GravSerializer serializer, ForkJoinPool pool, int threshold) {
+        if (threshold < 1)
+            throw new IllegalArgumentException("Threshold must be positive: " + threshold);
 
-            if (reduced) {
-                for (String updatedField : record.getUpdatedFields()) {
-                    Object val = get(updatedField);
-                    serializeObject(serializer, updatedField, val, true);
-                }
+        Lock lock = lockForRead();
+        try {
+            Map<JsonMeta, Integer> sizes = new IdentityHashMap<>();
+            if (serializer.isKeyInterning() || countEntries(sizes) < threshold) {
+                serialize0(serializer, false);
             } else {
-                for (Map.Entry<String, Object> entry : this.data.entrySet()) {
-                    String key = entry.getKey();
-                    Object val = entry.getValue();
-                    serializeObject(serializer, key, val, false);
+                serializeParallel0(serializer, pool, sizes, threshold);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Load this meta and put the number of entries in it and its children into {@code sizes}.
+     *
+     * @return The number, or -1 if it contains a JsonMeta of another parent, which locks its own
+     * tree when serialized
+     */
+    private int countEntries(Map<JsonMeta, Integer> sizes) {
+        loadAll();
+        int count = this.data.size() + this.toDeserialize.size();
+        for (Object val : this.data.values()) {
+            if (val instanceof JsonMeta) {
+                JsonMeta meta = (JsonMeta) val;
+                int size = meta.parent == this ? meta.countEntries(sizes) : -1;
+                if (size == -1)
+                    return -1;
+                count += size;
+            }
+        }
+        sizes.put(this, count);
+        return count;
+    }
+
+    private void serializeParallel0(GravSerializer serializer, ForkJoinPool pool, Map<JsonMeta, Integer> sizes, int threshold) {
+        writeHeader(serializer, false, this.data.size() + this.toDeserialize.size());
+
+        // Split the entries into runs of about threshold entries, the first run is written here
+        // while the others are serialized by tasks
+        List<SerializeTask> tasks = new ArrayList<>();
+        List<Map.Entry<String, Object>> first = null;
+        List<Map.Entry<String, Object>> run = new ArrayList<>();
+        int runSize = 0;
+        for (Map.Entry<String, Object> entry : this.data.entrySet()) {
+            run.add(entry);
+            Object val = entry.getValue();
+            runSize += val instanceof JsonMeta ? sizes.get(val) + 1 : 1;
+            if (runSize >= threshold) {
+                if (first == null) {
+                    first = run;
+                } else {
+                    tasks.add(new SerializeTask(this, run, part(serializer), pool, sizes, threshold));
                 }
-                for (Map.Entry<String, GravSerializer> entry : this.toDeserialize.entrySet()) {
-                    serializer.writeByte((byte) 1);
-                    serializer.writeString(entry.getKey());
-                    serializer.writeByteArray(entry.getValue().toByteArray());
+                run = new ArrayList<>();
+                runSize = 0;
+            }
+        }
+        if (first == null) {
+            first = run;
+        } else if (!run.isEmpty()) {
+            tasks.add(new SerializeTask(this, run, part(serializer), pool, sizes, threshold));
+        }
+
+        int started = 0;
+        try {
+            for (SerializeTask task : tasks) {
+                if (ForkJoinTask.getPool() == pool) {
+                    task.fork();
+                } else {
+                    pool.execute(task);
                 }
+                started++;
+            }
+
+            serializeEntries(serializer, first, pool, sizes, threshold);
+            for (SerializeTask task : tasks) {
+                serializer.append(task.join());
+            }
+
+            for (Map.Entry<String, GravSerializer> entry : this.toDeserialize.entrySet()) {
+                writeRaw(serializer, entry.getKey(), entry.getValue());
             }
         } finally {
-            lock.unlock();
+            // Don't let tasks read the tree after it is unlocked
+            for (int i = 0; i < tasks.size(); i++) {
+                if (i < started) {
+                    tasks.get(i).quietlyJoin();
+                }
+                GravSerializerPool.shared().release(tasks.get(i).part);
+            }
         }
     }
 
-    private void serializeObject(GravSerializer serializer, String key, Object val, boolean reduced) {
-        if (val instanceof JsonMeta && ((JsonMeta) val).parent == this) { //If it's parent isn't us, then treat it like any other object
-            serializer.writeByte((byte) 0);
-            serializer.writeString(key);
-            ((JsonMeta) val).serialize(serializer, reduced);
+    /**
+     * A pooled serializer for a part of the document written to {@code target}, with its
+     * settings. Acquired and released by the same thread, so it goes back to that thread's pool.
+     */
+    private static GravSerializer part(GravSerializer target) {
+        GravSerializer part = GravSerializerPool.shared().acquire();
+        part.setCompact(target.isCompact());
+        part.setClassNameInterning(target.isClassNameInterning());
+        return part;
+    }
+
+    private void serializeEntries(GravSerializer serializer, List<Map.Entry<String, Object>> entries, ForkJoinPool pool, Map<JsonMeta, Integer> sizes, int threshold) {
+        for (Map.Entry<String, Object> entry : entries) {
+            String key = entry.getKey();
+            Object val = entry.getValue();
+            if (val instanceof JsonMeta && sizes.get(val) >= threshold) {
+                serializer.writeByte((byte) 0);
+                writeKey(serializer, key);
+                ((JsonMeta) val).serializeParallel0(serializer, pool, sizes, threshold);
+            } else {
+                serializeObject(serializer, key, val, false);
+            }
+        }
+    }
+
+    /**
+     * Serializes a run of the entries of a JsonMeta into a part of the document.
+     */
+    private static final class SerializeTask extends RecursiveTask<GravSerializer> {
+        private static final long serialVersionUID = 1L;
+
+        private final JsonMeta meta;
+        private final List<Map.Entry<String, Object>> entries;
+        private final GravSerializer part;
+        private final ForkJoinPool pool;
+        private final Map<JsonMeta, Integer> sizes;
+        private final int threshold;
+
+        private SerializeTask(JsonMeta meta, List<Map.Entry<String, Object>> entries, GravSerializer part, ForkJoinPool pool, Map<JsonMeta, Integer> sizes, int threshold) {
+            this.meta = meta;
+            this.entries = entries;
+            this.part = part;
+            this.pool = pool;
+            this.sizes = sizes;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected GravSerializer compute() {
+            meta.serializeEntries(part, entries, pool, sizes, threshold);
+            return part;
+        }
+    }
+
+    /**
+     * Write the header of a serialized JsonMeta with {@code len} entries.
+     */
+    static void writeHeader(GravSerializer serializer, boolean reduced, int len) {
+        serializer.writeByte((byte) 2);
+
+        if (serializer.isKeyInterning()) {
+            serializer.writeInt(FLAGS_FORMAT_VERSION);
+            serializer.writeByte((byte) (FLAG_INTERNED_KEYS | (serializer.isCompact() ? FLAG_COMPACT : 0)));
         } else {
-            serializer.writeByte((byte) 1);
-            serializer.writeString(key);
+            serializer.writeInt(serializer.isCompact() ? COMPACT_FORMAT_VERSION : FORMAT_VERSION);
+        }
 
-            int sizePos = serializer.getWritePosition();
+        serializer.writeBoolean(reduced); //Probably not needed but who cares about an extra couple bytes
+        serializer.writeSize(len);
+    }
 
-            serializer.writeInt(0);
+    /**
+     * Write an entry that is not a child JsonMeta.
+     */
+    static void writeValue(GravSerializer serializer, String key, Object val) {
+        serializer.writeByte((byte) 1);
+        writeKey(serializer, key);
 
-            int pos = serializer.size();
+        long sizePos = serializer.beginLengthPrefix();
 
+        // Values may be kept as raw bytes on deserialization, so they get their own class name scope
+        ClassNameTable classNames = serializer.enterWriteScope();
+        try {
             serializer.writeObject(val);
+        } finally {
+            serializer.exitWriteScope(classNames);
+        }
 
-            int size = serializer.size() - pos; // Could be replaced by end - pos.
+        serializer.endLengthPrefix(sizePos);
+    }
 
-            int end = serializer.getWritePosition();
+    /**
+     * Write an entry whose value is kept as bytes, see {@link #toDeserialize}.
+     */
+    static void writeRaw(GravSerializer serializer, String key, GravSerializer raw) {
+        serializer.writeByte((byte) 1);
+        writeKey(serializer, key);
+        serializer.writeSerializer(raw);
+    }
 
-            serializer.setWritePosition(sizePos);
-            serializer.writeInt(size);
-            serializer.setWritePosition(end);
+    private void serializeObject(GravSerializer serializer, String key, Object val, boolean reduced) {
+        if (val instanceof JsonMeta && ((JsonMeta) val).parent == this) { //If it's parent isn't us, then treat it like any other object
+            serializer.writeByte((byte) 0);
+            writeKey(serializer, key);
+            ((JsonMeta) val).serialize0(serializer, reduced);
+        } else {
+            writeValue(serializer, key, val);
+        }
+    }
+
+    static void writeKey(GravSerializer serializer, String key) {
+        if (serializer.isKeyInterning()) {
+            serializer.writeKey(key);
+        } else {
+            serializer.writeString(key);
         }
     }
 
@@ -886,97 +1401,526 @@ public class JsonMeta implements GravSerializable {
         byte disc = serializer.readByte();
 
         int version = 1;
+        int flags = 0;
         boolean reduced = false;
 
         if (disc == 2) {
             version = serializer.readInt();
+            flags = readFlags(serializer, version);
             reduced = serializer.readBoolean();
         } else {
             reduced = disc == 1;
         }
+        boolean internedKeys = (flags & FLAG_INTERNED_KEYS) != 0;
 
-        int len = serializer.readInt();
+        // Read in the mode it was written in
+        boolean compact = serializer.isCompact();
+        serializer.setCompact((flags & FLAG_COMPACT) != 0);
+        try {
+            int len = serializer.readSize();
 
-        for (int i = 0; i < len; i++) {
-            byte type = serializer.readByte();
+            for (int i = 0; i < len; i++) {
+                byte type = serializer.readByte();
 //            try {
-            String key = serializer.readString();
-            Object object = null;
-            if (type == 0) {
-                object = JsonMeta.deserialize(serializer, doDeserialization);
-                link(meta, (JsonMeta) object, key); // Bug fix: parent was not being set on deserialization.
-            } else if (type == 1) {
-
-                int blockLength = -1;
-                if (version >= 2)
-                    blockLength = serializer.readInt();
-
-                if (doDeserialization) {
-                    int markedPos = serializer.getReadPosition();
-                    try {
-                        object = serializer.readObject();
-                    } catch (ObjectDeserializationException ex) {
-                        if (version >= 2) {
-                            serializer.setReadPosition(markedPos);
-                            meta.toDeserialize.put(key, new GravSerializer(serializer.readBytes(blockLength)));
-                            continue;
-                        } else {
-                            throw new UnsupportedOperationException("Cannot create toDeserialize for data serialized before version 2.");
+                String key = internedKeys ? serializer.readKey() : serializer.readString();
+                Object object = null;
+                if (type == 0) {
+                    object = JsonMeta.deserialize(serializer, doDeserialization);
+                    link(meta, (JsonMeta) object, key); // Bug fix: parent was not being set on deserialization.
+                } else if (type == 1) {
+
+                    int blockLength = -1;
+                    if (version >= 2)
+                        blockLength = serializer.readInt();
+
+                    if (doDeserialization) {
+                        long markedPos = serializer.getReadPositionLong();
+                        long pinned = serializer.pin(markedPos);
+                        ClassNameTable classNames = serializer.enterReadScope();
+                        try {
+                            object = serializer.readObject();
+                        } catch (ObjectDeserializationException ex) {
+                            if (version >= 2) {
+                                serializer.setReadPosition(markedPos);
+                                meta.toDeserialize.put(key, serializer.readSlice(blockLength));
+                                continue;
+                            } else {
+                                throw new UnsupportedOperationException("Cannot create toDeserialize for data serialized before version 2.");
+                            }
+                        } finally {
+                            serializer.exitReadScope(classNames);
+                            serializer.unpin(pinned);
                         }
+                    } else {
+                        meta.toDeserialize.put(key, serializer.readSlice(blockLength));
+                        continue;
                     }
-                } else {
-                    meta.toDeserialize.put(key, new GravSerializer(serializer.readBytes(blockLength)));
-                    continue;
                 }
-            }
-            meta.data.put(key, object);
+                meta.data.put(key, object);
 //            } catch (Throwable t) {
 //                continue;
 //            }
+            }
+        } finally {
+            serializer.setCompact(compact);
         }
 
         return meta;
     }
 
+    private static int readFlags(GravSerializer serializer, int version) {
+        if (version >= FLAGS_FORMAT_VERSION) {
+            return serializer.readByte();
+        }
+        return version == COMPACT_FORMAT_VERSION ? FLAG_COMPACT : 0;
+    }
+
+    /**
+     * Read a JsonMeta without decoding it. Only its keys are read, values and nested JsonMetas
+     * are decoded when they are first accessed.
+     * <p>
+     * The returned JsonMeta reads from the bytes of {@code serializer} (a copy when streaming),
+     * which must not be modified while any of it was not accessed yet. Entries that are never
+     * accessed are written back as they were read when serializing. As with
+     * {@code deserialize(serializer, false)}, values that were not accessed yet are left out of
+     * {@link #asMap()} and the like.
+     *
+     * @throws UnsupportedOperationException if the data was serialized before version 2
+     */
+    public static JsonMeta deserializeLazy(GravSerializer serializer) {
+        long start = serializer.getReadPositionLong();
+        long pinned = serializer.pin(start);
+        Map<String, Object> index;
+        GravSerializer source;
+        try {
+            index = index(serializer, start);
+            long end = serializer.getReadPositionLong();
+            serializer.setReadPosition(start);
+            source = serializer.readSlice((int) (end - start));
+        } finally {
+            serializer.unpin(pinned);
+        }
+
+        JsonMeta meta = new JsonMeta();
+        meta.setPending(index, source);
+        return meta;
+    }
+
+    /**
+     * Walk a serialized JsonMeta, mapping each key to the range of its value block relative to
+     * {@code start} ({@code offset << 32 | length}), or to the index of a nested JsonMeta.
+     */
+    private static Map<String, Object> index(GravSerializer serializer, long start) {
+        int flags = readBlockHeader(serializer);
+        boolean internedKeys = (flags & FLAG_INTERNED_KEYS) != 0;
+
+        boolean compact = serializer.isCompact();
+        serializer.setCompact((flags & FLAG_COMPACT) != 0);
+        try {
+            int len = serializer.readSize();
+            Map<String, Object> index = new HashMap<>((int) (len / 0.75f) + 1);
+            for (int i = 0; i < len; i++) {
+                byte type = serializer.readByte();
+                String key = internedKeys ? serializer.readKey() : serializer.readString();
+                if (type == 0) {
+                    index.put(key, index(serializer, start));
+                } else if (type == 1) {
+                    int blockLength = serializer.readInt();
+                    long offset = serializer.getReadPositionLong() - start;
+                    index.put(key, offset << 32 | blockLength);
+                    serializer.skip(blockLength);
+                }
+            }
+            return index;
+        } finally {
+            serializer.setCompact(compact);
+        }
+    }
+
+    /**
+     * Read the header of a JsonMeta whose values can be skipped by their block length.
+     *
+     * @return The FLAG_ bits
+     */
+    private static int readBlockHeader(GravSerializer serializer) {
+        byte disc = serializer.readByte();
+        if (disc != 2)
+            throw new UnsupportedOperationException("Cannot skip values of data serialized before version 2.");
+        int flags = readFlags(serializer, serializer.readInt());
+        serializer.readBoolean();
+        return flags;
+    }
+
+    /**
+     * Read the values at the given paths from a serialized JsonMeta, skipping everything else
+     * without decoding it. A path to a nested JsonMeta returns it fully deserialized.
+     * <p>
+     * The serializer is left after the JsonMeta, as with {@link #deserialize(GravSerializer)}.
+     *
+     * @return The value of each path that exists, by path
+     * @throws UnsupportedOperationException if the data was serialized before version 2
+     */
+    public static Map<String, Object> readPaths(GravSerializer serializer, String... paths) {
+        PathNode root = new PathNode();
+        for (String path : paths) {
+            PathNode node = root;
+            for (String s : JsonPath.split(path, '.')) {
+                node = node.children.computeIfAbsent(s, k -> new PathNode());
+            }
+            node.path = path;
+        }
+
+        Map<String, Object> values = new HashMap<>();
+        readPaths(serializer, root, values);
+        return values;
+    }
+
+    private static final class PathNode {
+        private final Map<String, PathNode> children = new HashMap<>();
+        // Set if this node is one of the requested paths
+        private String path;
+    }
+
+    private static void readPaths(GravSerializer serializer, PathNode node, Map<String, Object> values) {
+        int flags = readBlockHeader(serializer);
+        boolean internedKeys = (flags & FLAG_INTERNED_KEYS) != 0;
+
+        boolean compact = serializer.isCompact();
+        serializer.setCompact((flags & FLAG_COMPACT) != 0);
+        try {
+            int len = serializer.readSize();
+            for (int i = 0; i < len; i++) {
+                byte type = serializer.readByte();
+                String key = internedKeys ? serializer.readKey() : serializer.readString();
+                PathNode child = node.children.get(key);
+                if (type == 0) {
+                    if (child == null) {
+                        skip(serializer);
+                    } else if (child.path != null) {
+                        JsonMeta meta = JsonMeta.deserialize(serializer);
+                        collect(meta, child, values);
+                    } else {
+                        readPaths(serializer, child, values);
+                    }
+                } else if (type == 1) {
+                    int blockLength = serializer.readInt();
+                    if (child == null || child.path == null) {
+                        serializer.skip(blockLength);
+                        continue;
+                    }
+                    ClassNameTable classNames = serializer.enterReadScope();
+                    try {
+                        values.put(child.path, serializer.readObject());
+                    } finally {
+                        serializer.exitReadScope(classNames);
+                    }
+                }
+            }
+        } finally {
+            serializer.setCompact(compact);
+        }
+    }
+
+    /**
+     * Fill in a requested path that is a JsonMeta, and the paths requested inside it.
+     */
+    private static void collect(Object value, PathNode node, Map<String, Object> values) {
+        if (node.path != null) {
+            values.put(node.path, value);
+        }
+        if (value instanceof JsonMeta) {
+            JsonMeta meta = (JsonMeta) value;
+            node.children.forEach((key, child) -> {
+                if (meta.has(new String[]{key})) {
+                    collect(meta.get(new String[]{key}), child, values);
+                }
+            });
+        }
+    }
+
+    /**
+     * Skip a serialized JsonMeta without decoding any of it.
+     */
+    private static void skip(GravSerializer serializer) {
+        int flags = readBlockHeader(serializer);
+        boolean internedKeys = (flags & FLAG_INTERNED_KEYS) != 0;
+
+        boolean compact = serializer.isCompact();
+        serializer.setCompact((flags & FLAG_COMPACT) != 0);
+        try {
+            int len = serializer.readSize();
+            for (int i = 0; i < len; i++) {
+                byte type = serializer.readByte();
+                if (internedKeys) {
+                    // Definitions still have to be read, later keys may refer to them
+                    serializer.readKey();
+                } else {
+                    int keyLength = serializer.readSize();
+                    if (keyLength > 0) {
+                        serializer.skip(keyLength);
+                    }
+                }
+                if (type == 0) {
+                    skip(serializer);
+                } else if (type == 1) {
+                    serializer.skip(serializer.readInt());
+                }
+            }
+        } finally {
+            serializer.setCompact(compact);
+        }
+    }
+
+    /**
+     * Apply a reduced JsonMeta (see {@link #serialize(GravSerializer, boolean)}) to a serialized
+     * full one without deserializing either, same as deserializing both, calling
+     * {@link #putAll(JsonMeta)} and serializing the result.
+     * <p>
+     * Only keys are decoded: value blocks are copied as they are and subtrees the delta does not
+     * touch are copied as raw byte ranges, unless their keys have to be rewritten because of
+     * {@link GravSerializer#setKeyInterning(boolean)}. The result is written to {@code out} in its
+     * mode, both inputs are left after their JsonMeta.
+     *
+     * @throws IllegalArgumentException      if either input is streaming
+     * @throws UnsupportedOperationException if either was serialized before version 2
+     */
+    public static void merge(GravSerializer full, GravSerializer reduced, GravSerializer out) {
+        if (full.isStreaming() || reduced.isStreaming())
+            throw new IllegalArgumentException("Cannot merge streaming serializers");
+        Block fullBlock = Block.read(full);
+        Block reducedBlock = Block.read(reduced);
+        writeMerged(out, full, fullBlock, reduced, reducedBlock);
+    }
+
+    /**
+     * The keys of a serialized JsonMeta, in order, each mapped to the range of its value block
+     * ({@code position << 32 | length}) or to a nested Block.
+     */
+    private static final class Block {
+        private final int start;
+        private int end;
+        private final boolean internedKeys;
+        private final Map<String, Object> entries;
+
+        private Block(int start, boolean internedKeys, int size) {
+            this.start = start;
+            this.internedKeys = internedKeys;
+            this.entries = new LinkedHashMap<>((int) (size / 0.75f) + 1);
+        }
+
+        private static Block read(GravSerializer serializer) {
+            int start = serializer.getReadPosition();
+            int flags = readBlockHeader(serializer);
+            boolean internedKeys = (flags & FLAG_INTERNED_KEYS) != 0;
+
+            boolean compact = serializer.isCompact();
+            serializer.setCompact((flags & FLAG_COMPACT) != 0);
+            try {
+                int len = serializer.readSize();
+                Block block = new Block(start, internedKeys, len);
+                for (int i = 0; i < len; i++) {
+                    byte type = serializer.readByte();
+                    String key = internedKeys ? serializer.readKey() : serializer.readString();
+                    if (type == 0) {
+                        block.entries.put(key, read(serializer));
+                    } else if (type == 1) {
+                        int blockLength = serializer.readInt();
+                        block.entries.put(key, (long) serializer.getReadPosition() << 32 | blockLength);
+                        serializer.skip(blockLength);
+                    }
+                }
+                block.end = serializer.getReadPosition();
+                return block;
+            } finally {
+                serializer.setCompact(compact);
+            }
+        }
+    }
+
+    /**
+     * Write the merge of two blocks, either of which may be null.
+     */
+    private static void writeMerged(GravSerializer out, GravSerializer full, Block fullBlock, GravSerializer reduced, Block reducedBlock) {
+        Map<String, Object> fullEntries = fullBlock == null ? Collections.emptyMap() : fullBlock.entries;
+        Map<String, Object> reducedEntries = reducedBlock == null ? Collections.emptyMap() : reducedBlock.entries;
+
+        // Removed keys are written as null values in the delta
+        int len = 0;
+        for (String key : fullEntries.keySet()) {
+            Object next = reducedEntries.get(key);
+            if (next == null || !isNull(reduced, next))
+                len++;
+        }
+        for (Map.Entry<String, Object> entry : reducedEntries.entrySet()) {
+            if (!fullEntries.containsKey(entry.getKey()) && !isNull(reduced, entry.getValue()))
+                len++;
+        }
+
+        writeHeader(out, false, len);
+
+        for (Map.Entry<String, Object> entry : fullEntries.entrySet()) {
+            String key = entry.getKey();
+            Object next = reducedEntries.get(key);
+            if (next == null) {
+                writeEntry(out, key, full, entry.getValue());
+            } else if (next instanceof Block) {
+                out.writeByte((byte) 0);
+                writeKey(out, key);
+                Object current = entry.getValue();
+                writeMerged(out, full, current instanceof Block ? (Block) current : null, reduced, (Block) next);
+            } else if (!isNull(reduced, next)) {
+                writeEntry(out, key, reduced, next);
+            }
+        }
+        for (Map.Entry<String, Object> entry : reducedEntries.entrySet()) {
+            String key = entry.getKey();
+            Object next = entry.getValue();
+            if (fullEntries.containsKey(key) || isNull(reduced, next))
+                continue;
+            if (next instanceof Block) {
+                // Drop the removals of a reduced JsonMeta that replaces a value
+                out.writeByte((byte) 0);
+                writeKey(out, key);
+                writeMerged(out, null, null, reduced, (Block) next);
+            } else {
+                writeEntry(out, key, reduced, next);
+            }
+        }
+    }
+
+    private static void writeEntry(GravSerializer out, String key, GravSerializer source, Object entry) {
+        if (entry instanceof Block) {
+            Block block = (Block) entry;
+            out.writeByte((byte) 0);
+            writeKey(out, key);
+            if (block.internedKeys || out.isKeyInterning()) {
+                // Keys refer to the scope they were written in, so they are written again
+                writeMerged(out, source, block, null, null);
+            } else {
+                out.append(source.slice(block.start, block.end - block.start));
+            }
+        } else {
+            long range = (Long) entry;
+            out.writeByte((byte) 1);
+            writeKey(out, key);
+            out.writeInt((int) range);
+            out.append(source.slice((int) (range >>> 32), (int) range));
+        }
+    }
+
+    private static boolean isNull(GravSerializer source, Object entry) {
+        if (!(entry instanceof Long))
+            return false;
+        long range = (Long) entry;
+        return (int) range == 1 && source.slice((int) (range >>> 32), 1).readByte() == 0;
+    }
+
+    private void setPending(Map<String, Object> index, GravSerializer source) {
+        if (!index.isEmpty()) {
+            this.pendingSource = source;
+            this.pending = index;
+        }
+    }
+
+    /**
+     * Decode a pending entry: values become toDeserialize slices, which get decodes on access,
+     * and nested JsonMetas become lazy JsonMetas themselves. Must be called with the lock held.
+     */
+    private void resolve(String key) {
+        Map<String, Object> pending = this.pending;
+        if (pending == null)
+            return;
+        Object entry = pending.remove(key);
+        if (entry != null) {
+            load(key, entry);
+        }
+        if (pending.isEmpty()) {
+            this.pending = null;
+            this.pendingSource = null;
+        }
+    }
+
+    private void loadAll() {
+        if (pending == null)
+            return;
+        lock.lock();
+        try {
+            Map<String, Object> pending = this.pending;
+            if (pending == null)
+                return;
+            pending.forEach(this::load);
+            this.pending = null;
+            this.pendingSource = null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void load(String key, Object entry) {
+        if (entry instanceof Long) {
+            long range = (Long) entry;
+            toDeserialize.put(key, pendingSource.slice((int) (range >>> 32), (int) range));
+        } else {
+            JsonMeta child = new JsonMeta();
+            child.setPending((Map<String, Object>) entry, pendingSource);
+            link(this, child, key);
+            data.put(key, child);
+        }
+    }
+
     public Map<String, Object> asShallowMap() {
+        loadAll();
         return new HashMap<>(this.data);
     }
 
     public Map<String, Object> asMap() {
-        lock.lock();
+        Lock lock = lockForRead();
         try {
-            Map<String, Object> ret = new HashMap<>();
-            this.data.forEach((k, v) -> {
-                if (v instanceof JsonMeta) {
-                    ret.put(k, ((JsonMeta) v).asMap());
-                } else {
-                    ret.put(k, v);
-                }
-            });
-            return ret;
+            return asMap0();
         } finally {
             lock.unlock();
         }
     }
 
+    private Map<String, Object> asMap0() {
+        loadAll();
+        Map<String, Object> ret = new HashMap<>();
+        this.data.forEach((k, v) -> {
+            if (v instanceof JsonMeta) {
+                JsonMeta meta = (JsonMeta) v;
+                ret.put(k, meta.parent == this ? meta.asMap0() : meta.asMap());
+            } else {
+                ret.put(k, v);
+            }
+        });
+        return ret;
+    }
+
     public Map<String, Object> asFlatMap() {
-        lock.lock();
+        Lock lock = lockForRead();
         try {
-            Map<String, Object> ret = new HashMap<>();
-            this.data.forEach((k, v) -> {
-                if (v instanceof JsonMeta) {
-                    Map<String, Object> fm = ((JsonMeta) v).asFlatMap();
-                    fm.forEach((k2, v2) -> ret.put(k + '.' + k2, v2));
-                } else {
-                    ret.put(k, v);
-                }
-            });
-            return ret;
+            return asFlatMap0();
         } finally {
             lock.unlock();
         }
     }
 
+    private Map<String, Object> asFlatMap0() {
+        loadAll();
+        Map<String, Object> ret = new HashMap<>();
+        this.data.forEach((k, v) -> {
+            if (v instanceof JsonMeta) {
+                JsonMeta meta = (JsonMeta) v;
+                Map<String, Object> fm = meta.parent == this ? meta.asFlatMap0() : meta.asFlatMap();
+                fm.forEach((k2, v2) -> ret.put(k + '.' + k2, v2));
+            } else {
+                ret.put(k, v);
+            }
+        });
+        return ret;
+    }
+
     public Meta toMeta() {
         return new Meta(asMap());
     }
@@ -985,10 +1929,61 @@ public class JsonMeta implements GravSerializable {
         return JsonUtil.readJson(str);
     }
 
+    /**
+     * An immutable view of this meta as it is now, which can be read and serialized without any
+     * locking while this meta keeps changing.
+     * <p>
+     * Snapshots are cached, and a change only discards the snapshots of the JsonMetas on its path,
+     * so the next snapshot rebuilds those and shares the rest with the previous one. Values are
+     * not copied, so values other than JsonMetas must not be modified after they were set.
+     */
+    public JsonMetaSnapshot snapshot() {
+        Lock lock = lockForRead();
+        try {
+            return snapshot0();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private JsonMetaSnapshot snapshot0() {
+        JsonMetaSnapshot snapshot = this.snapshot;
+        if (snapshot != null)
+            return snapshot;
+
+        loadAll();
+        Map<String, Object> values = new HashMap<>();
+        this.data.forEach((k, v) -> {
+            if (v instanceof JsonMeta && ((JsonMeta) v).parent == this) {
+                values.put(k, ((JsonMeta) v).snapshot0());
+            } else {
+                values.put(k, v);
+            }
+        });
+        Map<String, GravSerializer> raw = new HashMap<>();
+        this.toDeserialize.forEach((k, v) -> raw.put(k, v.slice(0, v.size())));
+
+        snapshot = new JsonMetaSnapshot(values, raw, delimiter);
+        this.snapshot = snapshot;
+        return snapshot;
+    }
+
+    /**
+     * Must be called with the lock held after the content of this meta changed.
+     */
+    private void invalidateSnapshot() {
+        // A cached snapshot contains the cached snapshots of all children, so once one is missing
+        // the parents have none either
+        for (JsonMeta meta = this; meta != null && meta.snapshot != null; meta = meta.parent) {
+            meta.snapshot = null;
+        }
+    }
+
     public JsonMeta copy() {
         JsonMeta ret = new JsonMeta();
         lock.lock();
         try {
+            loadAll();
             for (String key : data.keySet()) {
                 Object val = get(key);
                 if (val instanceof JsonMeta) {
@@ -1000,7 +1995,7 @@ public class JsonMeta implements GravSerializable {
 
             // Copy over the toDeserialize map.
             this.toDeserialize.forEach((k, v) ->
-                    ret.toDeserialize.put(k, new GravSerializer(v.toByteArray())));
+                    ret.toDeserialize.put(k, v.slice(0, v.size())));
 
         } finally {
             lock.unlock();
@@ -1011,6 +2006,7 @@ public class JsonMeta implements GravSerializable {
     public JsonMeta toBson() {
         lock.lock();
         try {
+            loadAll();
             JsonMeta ret = new JsonMeta(markDirtyByDefault);
             for (Map.Entry<String, Object> ent : this.data.entrySet()) {
                 if (ent.getValue() == null)
@@ -1031,9 +2027,11 @@ public class JsonMeta implements GravSerializable {
                 } else if (ent.getValue() instanceof Boolean) {
                     ret.set(ent.getKey(), ent.getValue());
                 } else {
-                    GravSerializer ser = new GravSerializer();
-                    ser.writeObject(ent.getValue());
-                    ret.set(SERIALIZED_PREFIX + ent.getKey(), ser.toByteArray());
+                    try (GravSerializerPool.Lease lease = GravSerializerPool.shared().lease()) {
+                        GravSerializer ser = lease.serializer();
+                        ser.writeObject(ent.getValue());
+                        ret.set(SERIALIZED_PREFIX + ent.getKey(), ser.toByteArray());
+                    }
                 }
             }
 
@@ -1052,6 +2050,7 @@ public class JsonMeta implements GravSerializable {
 
         lock.lock();
         try {
+            loadAll();
             JsonMeta ret = new JsonMeta(markDirtyByDefault);
             for (Map.Entry<String, Object> ent : this.data.entrySet()) {
                 if (ent.getValue() instanceof JsonMeta) {
@@ -0,0 +1,216 @@
+package net.ultragrav.serializer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of the changes made to a {@link JsonMeta}, so its state can be saved
+ * incrementally instead of re-saving the whole document.
+ * <p>
+ * {@link #append(JsonMeta)} writes the changes recorded in the JsonMeta's
+ * {@link JsonMetaUpdateRecord} (see {@link JsonMeta#reduce()}) as one record and clears them.
+ * Once the log grows beyond the compaction threshold it is replaced by a single snapshot of the
+ * whole document. {@link #replay()} reads the state back on startup.
+ * <p>
+ * Each record is framed by its length and a CRC32 checksum. A record that was only partially
+ * written, or is otherwise corrupt, ends the log: it and anything after it is truncated when
+ * the log is opened.
+ * <pre>{@code
+ * JsonMetaDeltaLog log = new JsonMetaDeltaLog(path);
+ * JsonMeta state = log.replay();
+ * ...
+ * // Every tick
+ * log.append(state);
+ * }</pre>
+ */
+public final class JsonMetaDeltaLog implements Closeable {
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 16 << 20;
+
+    private static final byte SNAPSHOT = 0;
+    private static final byte DELTA = 1;
+    // Length prefix and checksum
+    private static final int FRAME_OVERHEAD = 8;
+
+    private final Path path;
+    private FileChannel channel;
+    // The valid records read when opening, until they are replayed
+    private GravSerializer recovered;
+
+    private long compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+    private boolean sync = true;
+
+    /**
+     * Open or create a log, truncating any partially written record at its end.
+     */
+    public JsonMetaDeltaLog(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        try {
+            GravSerializer log = GravSerializer.load(path);
+            int valid = 0;
+            while (frameLength(log) != -1) {
+                valid = log.getReadPosition();
+            }
+            if (valid < log.size()) {
+                channel.truncate(valid);
+                channel.force(false);
+            }
+            recovered = log.slice(0, valid);
+            channel.position(valid);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Skip over the next record.
+     *
+     * @return The length of its payload, or -1 if there is no complete and valid record
+     */
+    private static int frameLength(GravSerializer log) {
+        int start = log.getReadPosition();
+        int available = log.size() - start;
+        if (available < FRAME_OVERHEAD + 1)
+            return -1;
+        int length = log.readInt();
+        if (length < 1 || length > available - FRAME_OVERHEAD)
+            return -1;
+
+        CRC32 crc = new CRC32();
+        log.checksum(crc, start + 4, length);
+        log.skip(length);
+        if (log.readInt() != (int) crc.getValue())
+            return -1;
+        return length;
+    }
+
+    /**
+     * Whether to force each record to disk before {@link #append(JsonMeta)} returns. Defaults to
+     * true, without it records may be lost on a crash (but the log stays readable).
+     */
+    public void setSync(boolean sync) {
+        this.sync = sync;
+    }
+
+    /**
+     * Size in bytes the log may grow to before it is compacted into a snapshot.
+     */
+    public void setCompactionThreshold(long compactionThreshold) {
+        this.compactionThreshold = compactionThreshold;
+    }
+
+    public synchronized long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Read the state the log describes: its last snapshot with all later records applied. The
+     * returned JsonMeta marks changes dirty by default, so it can be passed to
+     * {@link #append(JsonMeta)}.
+     */
+    public synchronized JsonMeta replay() throws IOException {
+        GravSerializer log = recovered;
+        recovered = null;
+        if (log == null) {
+            log = GravSerializer.load(path);
+        }
+
+        // Compaction rewrites the whole log, so a snapshot can only be the first record
+        JsonMeta meta = new JsonMeta();
+        int start = 0;
+        int length;
+        while ((length = frameLength(log)) != -1) {
+            GravSerializer record = log.slice(start + 4, length);
+            start = log.getReadPosition();
+
+            byte type = record.readByte();
+            if (type == SNAPSHOT) {
+                meta = JsonMeta.deserialize(record);
+            } else {
+                meta.putAll(JsonMeta.deserialize(record), false);
+            }
+        }
+
+        meta.setMarkDirtyByDefaultRecursive(true);
+        meta.getRecord().clear();
+        return meta;
+    }
+
+    /**
+     * Write the changes recorded in {@code meta} since the last append as a record, and clear
+     * them. Nothing is written if there are none. Compacts the log if it grew beyond the
+     * compaction threshold.
+     */
+    public synchronized void append(JsonMeta meta) throws IOException {
+        meta.getLock().lock();
+        try {
+            if (meta.getRecord().getUpdatedFields().isEmpty())
+                return;
+            write(meta, DELTA);
+            meta.getRecord().clear();
+        } finally {
+            meta.getLock().unlock();
+        }
+
+        if (channel.size() > compactionThreshold) {
+            compact(meta);
+        }
+    }
+
+    /**
+     * Replace the log with a snapshot of the whole of {@code meta}, and clear its changes.
+     */
+    public synchronized void compact(JsonMeta meta) throws IOException {
+        meta.getLock().lock();
+        try (GravSerializerPool.Lease lease = GravSerializerPool.shared().lease()) {
+            GravSerializer serializer = lease.serializer();
+            frame(serializer, meta, SNAPSHOT);
+
+            channel.close();
+            try {
+                serializer.save(path);
+            } finally {
+                // The old log is kept if saving failed
+                channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                channel.position(channel.size());
+            }
+
+            meta.getRecord().clear();
+        } finally {
+            meta.getLock().unlock();
+        }
+    }
+
+    private void write(JsonMeta meta, byte type) throws IOException {
+        try (GravSerializerPool.Lease lease = GravSerializerPool.shared().lease()) {
+            GravSerializer serializer = lease.serializer();
+            frame(serializer, meta, type);
+            serializer.writeTo(channel);
+            if (sync) {
+                channel.force(false);
+            }
+        }
+    }
+
+    private static void frame(GravSerializer serializer, JsonMeta meta, byte type) {
+        long lengthPos = serializer.beginLengthPrefix();
+        serializer.writeByte(type);
+        meta.serialize(serializer, type == DELTA);
+        serializer.endLengthPrefix(lengthPos);
+
+        CRC32 crc = new CRC32();
+        serializer.checksum(crc, 4, serializer.size() - 4);
+        serializer.writeInt((int) crc.getValue());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,144 @@
+package net.ultragrav.serializer;
+
+import java.util.*;
+
+/**
+ * An immutable view of a {@link JsonMeta} at one point in time, see {@link JsonMeta#snapshot()}.
+ * Snapshots take no locks, so any number of threads can read and serialize one while the
+ * JsonMeta it was taken from is being modified.
+ * <pre>{@code
+ * JsonMetaSnapshot profile = player.getProfile().snapshot();
+ * int kills = profile.get("stats.Bedwars.kills");
+ * profile.serialize(response);
+ * }</pre>
+ * Nested JsonMetas are snapshots themselves. Values that were kept as bytes by
+ * {@link JsonMeta#deserialize(GravSerializer, boolean)} are decoded on every access.
+ */
+public final class JsonMetaSnapshot {
+    private final Map<String, Object> data;
+    private final Map<String, GravSerializer> toDeserialize;
+    private final String delimiter;
+
+    JsonMetaSnapshot(Map<String, Object> data, Map<String, GravSerializer> toDeserialize, String delimiter) {
+        this.data = data;
+        this.toDeserialize = toDeserialize;
+        this.delimiter = delimiter;
+    }
+
+    public <T> T get(String path, Object... constructionArgs) {
+        return get(JsonPath.split(path, delimiter), constructionArgs);
+    }
+
+    public <T> T get(JsonPath path, Object... constructionArgs) {
+        return get(path.segments(), constructionArgs);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(String[] path, Object... constructionArgs) {
+        JsonMetaSnapshot current = this;
+        for (int i = 0; i < path.length; i++) {
+            Object o = current.value(path, i, constructionArgs);
+            if (i == path.length - 1)
+                return (T) o;
+            if (!(o instanceof JsonMetaSnapshot))
+                return null;
+            current = (JsonMetaSnapshot) o;
+        }
+        return (T) current;
+    }
+
+    private Object value(String[] path, int index, Object[] constructionArgs) {
+        String key = path[index];
+        Object o = data.get(key);
+        if (o != null)
+            return o;
+
+        GravSerializer ser = toDeserialize.get(key);
+        if (ser == null)
+            return null;
+        try {
+            // The slice has its own read position, so concurrent reads don't interfere
+            return ser.slice(0, ser.size()).readObject(constructionArgs);
+        } catch (ObjectDeserializationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new ObjectDeserializationException("Failed to deserialize object: " + String.join(".", Arrays.copyOf(path, index + 1)), e, ObjectDeserializationException.DeserializationExceptionCause.UNKNOWN);
+        }
+    }
+
+    public boolean has(String path) {
+        return has(JsonPath.split(path, delimiter));
+    }
+
+    public boolean has(JsonPath path) {
+        return has(path.segments());
+    }
+
+    public boolean has(String[] path) {
+        if (path.length == 0)
+            return true;
+        JsonMetaSnapshot current = this;
+        for (int i = 0; i < path.length - 1; i++) {
+            Object o = current.data.get(path[i]);
+            if (!(o instanceof JsonMetaSnapshot))
+                return false;
+            current = (JsonMetaSnapshot) o;
+        }
+        String key = path[path.length - 1];
+        return current.data.containsKey(key) || current.toDeserialize.containsKey(key);
+    }
+
+    public List<String> getKeys() {
+        List<String> keys = new ArrayList<>(data.keySet());
+        keys.addAll(toDeserialize.keySet());
+        return keys;
+    }
+
+    /**
+     * The values of this snapshot, with nested snapshots as maps. Values kept as bytes are left out,
+     * same as {@link JsonMeta#asMap()}.
+     */
+    public Map<String, Object> asMap() {
+        Map<String, Object> ret = new HashMap<>();
+        data.forEach((k, v) -> ret.put(k, v instanceof JsonMetaSnapshot ? ((JsonMetaSnapshot) v).asMap() : v));
+        return ret;
+    }
+
+    public Map<String, Object> asFlatMap() {
+        Map<String, Object> ret = new HashMap<>();
+        data.forEach((k, v) -> {
+            if (v instanceof JsonMetaSnapshot) {
+                ((JsonMetaSnapshot) v).asFlatMap().forEach((k2, v2) -> ret.put(k + '.' + k2, v2));
+            } else {
+                ret.put(k, v);
+            }
+        });
+        return ret;
+    }
+
+    /**
+     * Serialize this snapshot in the same format as {@link JsonMeta#serialize(GravSerializer)},
+     * so it can be read with {@link JsonMeta#deserialize(GravSerializer)}.
+     */
+    public void serialize(GravSerializer serializer) {
+        JsonMeta.writeHeader(serializer, false, data.size() + toDeserialize.size());
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object val = entry.getValue();
+            if (val instanceof JsonMetaSnapshot) {
+                serializer.writeByte((byte) 0);
+                JsonMeta.writeKey(serializer, entry.getKey());
+                ((JsonMetaSnapshot) val).serialize(serializer);
+            } else {
+                JsonMeta.writeValue(serializer, entry.getKey(), val);
+            }
+        }
+        for (Map.Entry<String, GravSerializer> entry : toDeserialize.entrySet()) {
+            JsonMeta.writeRaw(serializer, entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return asMap().toString();
+    }
+}
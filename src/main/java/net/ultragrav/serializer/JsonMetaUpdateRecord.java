@@ -4,10 +4,12 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 public class JsonMetaUpdateRecord {
-    protected Set<String> updatedFields = new HashSet<>();
+    // Concurrent since with subtree locking, subtrees mark their parents dirty in parallel
+    protected Set<String> updatedFields = ConcurrentHashMap.newKeySet();
     public Set<JsonMetaUpdateRecord> children = new HashSet<>();
     public List<Consumer<String>> listeners = new ArrayList<>();
 
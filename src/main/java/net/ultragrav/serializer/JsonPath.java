@@ -0,0 +1,113 @@
+package net.ultragrav.serializer;
+
+import java.util.Arrays;
+
+/**
+ * A {@link JsonMeta} path that is split once, instead of on every access. Paths are immutable
+ * and meant to be kept in constants:
+ * <pre>{@code
+ * private static final JsonPath KILLS = JsonMeta.path("stats.Bedwars.kills");
+ *
+ * int kills = meta.get(KILLS);
+ * meta.set(KILLS, kills + 1);
+ * }</pre>
+ */
+public final class JsonPath {
+    private final String path;
+    private final String[] segments;
+
+    private JsonPath(String path, String[] segments) {
+        this.path = path;
+        this.segments = segments;
+    }
+
+    /**
+     * Split a path on dots.
+     */
+    public static JsonPath of(String path) {
+        return of(path, "\\.");
+    }
+
+    /**
+     * @param delimiter Regex to split the path on, same as {@link JsonMeta#JsonMeta(String)}
+     */
+    public static JsonPath of(String path, String delimiter) {
+        return new JsonPath(path, split(path, delimiter));
+    }
+
+    /**
+     * Same as {@link String#split(String)}, but without any intermediate allocations for single
+     * character delimiters (such as the default {@code "\\."}).
+     */
+    static String[] split(String path, String delimiter) {
+        int c = literalDelimiter(delimiter);
+        return c == -1 ? path.split(delimiter) : split(path, (char) c);
+    }
+
+    /**
+     * The character a regex matches if it only matches a single literal character, otherwise -1.
+     */
+    private static int literalDelimiter(String regex) {
+        char c;
+        if (regex.length() == 1) {
+            c = regex.charAt(0);
+            if (".$|()[{^?*+\\".indexOf(c) != -1)
+                return -1;
+        } else if (regex.length() == 2 && regex.charAt(0) == '\\') {
+            // Escaped letters and digits are character classes or back references
+            c = regex.charAt(1);
+            if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9')
+                return -1;
+        } else {
+            return -1;
+        }
+        return Character.isSurrogate(c) ? -1 : c;
+    }
+
+    static String[] split(String path, char delimiter) {
+        int count = 1;
+        for (int i = path.indexOf(delimiter); i != -1; i = path.indexOf(delimiter, i + 1)) {
+            count++;
+        }
+        if (count == 1)
+            return new String[]{path};
+
+        String[] segments = new String[count];
+        int start = 0;
+        for (int i = 0; i < count - 1; i++) {
+            int end = path.indexOf(delimiter, start);
+            segments[i] = path.substring(start, end);
+            start = end + 1;
+        }
+        segments[count - 1] = path.substring(start);
+
+        // String.split drops trailing empty segments
+        int length = count;
+        while (length > 0 && segments[length - 1].isEmpty()) {
+            length--;
+        }
+        return length == count ? segments : Arrays.copyOf(segments, length);
+    }
+
+    /**
+     * The segments, which must not be modified.
+     */
+    String[] segments() {
+        return segments;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof JsonPath && Arrays.equals(segments, ((JsonPath) o).segments);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(segments);
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,23 @@
+package net.ultragrav.serializer;
+
+/**
+ * Receives the acquisitions of the locks of a {@link JsonMeta} tree, see
+ * {@link JsonMeta#setLockMetrics(LockMetrics)}. Called by the acquiring thread right after it
+ * got (or gave up on) the lock, so implementations must be thread safe and fast.
+ * {@link LockStatistics} collects counts and a wait time histogram.
+ */
+public interface LockMetrics {
+    /**
+     * @param shared    Whether the shared side of the lock was taken
+     * @param waitNanos How long taking the lock took
+     * @param holder    The thread that held the lock exclusively when the acquisition started,
+     *                  null if there was none
+     */
+    void acquired(boolean shared, long waitNanos, Thread holder);
+
+    /**
+     * A tryLock that failed or timed out, or a lockInterruptibly that was interrupted.
+     */
+    default void failed(boolean shared, long waitNanos, Thread holder) {
+    }
+}
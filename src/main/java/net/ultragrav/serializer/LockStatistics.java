@@ -0,0 +1,94 @@
+package net.ultragrav.serializer;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link LockMetrics} that counts acquisitions and keeps a histogram of how long they waited,
+ * to tell whether document locks are holding threads up:
+ * <pre>{@code
+ * LockStatistics stats = new LockStatistics();
+ * guild.setLockMetrics(stats);
+ * ...
+ * long[] waits = stats.getWaitHistogram();
+ * }</pre>
+ */
+public final class LockStatistics implements LockMetrics {
+    /**
+     * Bucket {@code i} of the histogram counts waits shorter than {@code 2^i} microseconds,
+     * except for the last one, which counts all longer waits too.
+     */
+    public static final int BUCKETS = 24;
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAdder[] histogram = new LongAdder[BUCKETS];
+    private volatile Thread lastHolder;
+
+    public LockStatistics() {
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void acquired(boolean shared, long waitNanos, Thread holder) {
+        acquisitions.increment();
+        record(waitNanos, holder);
+    }
+
+    @Override
+    public void failed(boolean shared, long waitNanos, Thread holder) {
+        failures.increment();
+        record(waitNanos, holder);
+    }
+
+    private void record(long waitNanos, Thread holder) {
+        this.waitNanos.add(waitNanos);
+        histogram[bucket(waitNanos)].increment();
+        if (holder != null) {
+            lastHolder = holder;
+        }
+    }
+
+    static int bucket(long waitNanos) {
+        long micros = waitNanos / 1000;
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+    }
+
+    public long getAcquisitions() {
+        return acquisitions.sum();
+    }
+
+    /**
+     * Number of tryLocks that failed or timed out and lockInterruptiblys that were interrupted.
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /**
+     * Total time spent taking locks, including failed attempts.
+     */
+    public long getWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    /**
+     * The number of attempts per wait time bucket, see {@link #BUCKETS}.
+     */
+    public long[] getWaitHistogram() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = histogram[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * The thread that last held a lock another thread tried to take, or null.
+     */
+    public Thread getLastHolder() {
+        return lastHolder;
+    }
+}
@@ -26,7 +26,7 @@ public class Meta implements GravSerializable {
     public Meta(GravSerializer serializer) {
         if (serializer == null)
             return;
-        int amount = serializer.readInt();
+        int amount = serializer.readSize();
         for (int i = 0; i < amount; i++) {
             String key = serializer.readString();
             GravSerializer wrapper = serializer.readSerializer();
@@ -206,12 +206,17 @@ public class Meta implements GravSerializable {
     public void serialize(GravSerializer serializer) {
         lock.writeLock().lock();
         try {
-            serializer.writeInt(meta.size() + toDeserialize.size());
+            serializer.writeSize(meta.size() + toDeserialize.size());
             meta.forEach((k, o) -> {
-                GravSerializer wrapper = new GravSerializer();
-                wrapper.writeObject(o);
                 serializer.writeString(k);
-                serializer.writeSerializer(wrapper);
+                long lengthPos = serializer.beginLengthPrefix();
+                ClassNameTable classNames = serializer.enterWriteScope();
+                try {
+                    serializer.writeObject(o);
+                } finally {
+                    serializer.exitWriteScope(classNames);
+                }
+                serializer.endLengthPrefix(lengthPos);
             });
             toDeserialize.forEach((k, o) -> {
                 serializer.writeString(k);
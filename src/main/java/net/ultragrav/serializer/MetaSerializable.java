@@ -1,11 +1,5 @@
 package net.ultragrav.serializer;
 
-import net.ultragrav.serializer.util.ReflectionUtil;
-
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Method;
-import java.util.Arrays;
-
 /**
  * Requires either a static method deserialize(Meta) OR a constructor(Meta)
  */
@@ -21,33 +15,26 @@ public interface MetaSerializable extends GravSerializable {
         args[0] = meta;
         System.arraycopy(otherArguments, 0, args, 1, otherArguments.length);
 
-//        System.out.println("Args: " + Arrays.toString(args));
-
-        boolean c1 = false;
-        try {
+        DeserializationHandles.Handles handles = DeserializationHandles.compatible(clazz, args);
+        if (handles.method != null) {
             try {
-//                Method m = clazz.getMethod("deserialize", Meta.class);
-                Method m = ReflectionUtil.getCompatibleMethod(clazz, "deserialize", args);
-                if (m == null) throw new NoSuchMethodException();
-                return (T) m.invoke(null, args);
-            } catch (NoSuchMethodException ignored) {
-            } catch (NullPointerException e) {
-                c1 = true;
-            } catch (Exception e) {
-                e.printStackTrace();
+                return (T) handles.invokeMethod(args);
+            } catch (Throwable t) {
+                t.printStackTrace();
             }
-
-//            Constructor<T> constructor = clazz.getDeclaredConstructor(Meta.class);
-            Constructor<T> constructor = ReflectionUtil.getCompatibleConstructor(clazz, args);
-//            System.out.println("Constructor: " + constructor);
-            if (constructor == null) throw new ObjectDeserializationException(ObjectDeserializationException.DeserializationExceptionCause.NO_DESERIALIZATION_METHOD);
-            return constructor.newInstance(args);
-        } catch (Exception e) {
-            if (!c1)
-                throw new ObjectDeserializationException("ERROR: Could NOT find a deserialization method for " + className, e, ObjectDeserializationException.DeserializationExceptionCause.NO_DESERIALIZATION_METHOD);
-            throw new ObjectDeserializationException("ERROR: Deserialization method non-static for " + className, e, ObjectDeserializationException.DeserializationExceptionCause.NO_DESERIALIZATION_METHOD);
         }
 
+        String message = handles.methodNonStatic
+                ? "ERROR: Deserialization method non-static for " + className
+                : "ERROR: Could NOT find a deserialization method for " + className;
+        if (handles.constructor == null) {
+            throw new ObjectDeserializationException(message, ObjectDeserializationException.DeserializationExceptionCause.NO_DESERIALIZATION_METHOD);
+        }
+        try {
+            return (T) handles.invokeConstructor(args);
+        } catch (Throwable t) {
+            throw new ObjectDeserializationException(message, t, ObjectDeserializationException.DeserializationExceptionCause.NO_DESERIALIZATION_METHOD);
+        }
     }
 
     Meta serialize();
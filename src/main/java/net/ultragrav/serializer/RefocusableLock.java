@@ -3,77 +3,505 @@ package net.ultragrav.serializer;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+/**
+ * The lock of a {@link JsonMeta}, which always resolves to the lock of the root of its tree.
+ * <p>
+ * Locking it takes the root's lock exclusively. {@link #readLock()} is the shared side of the
+ * same lock, which JsonMeta only uses for reads if the tree allows shared reads, see
+ * {@link JsonMeta#setSharedReads(boolean)}.
+ * <p>
+ * With subtree locking (see {@link JsonMeta#setSubtreeLocking(int)}) the JsonMetas at the lock
+ * depth have locks of their own, which the JsonMetas below them resolve to instead. Taking one
+ * also takes the shared side of the root's lock as an intention lock, so locking the root still
+ * locks the whole tree. The root's lock is then always taken exclusively.
+ * <p>
+ * Acquisitions are reported to the tree's {@link LockMetrics}, if it has any.
+ */
 public class RefocusableLock implements Lock {
-    private final ReentrantLock current = new ReentrantLock(); // Only use if parent's parent is null.
+    // Timeout of take that waits until the lock is free or the thread is interrupted
+    private static final long FOREVER = -1;
+
+    private final OwnedLock current = new OwnedLock(); // Only use if parent's parent is null, or at the subtree lock depth.
     private final JsonMeta parent;
+    private final Lock readLock = new ReadLock();
+    private final View treeLock = new TreeLock();
+    private final View intentionLock = new IntentionLock();
+    private final View subtreeLock = new SubtreeLock(false);
+    private final View subtreeReadLock = new SubtreeLock(true);
+    private volatile boolean sharedReads = false;
+    private volatile int subtreeLockDepth = 0;
+    private volatile LockMetrics metrics = null;
 
     public RefocusableLock(JsonMeta parent) {
         this.parent = parent;
     }
 
     public void lock() {
+        lock(false);
+    }
+
+    public void unlock() {
+        focus(false).unlock();
+    }
+
+    @Override
+    public void lockInterruptibly() throws InterruptedException {
+        acquire(false, FOREVER);
+    }
+
+    @Override
+    public boolean tryLock() {
+        try {
+            return acquire(false, 0);
+        } catch (InterruptedException e) {
+            // Not thrown without waiting
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+        return acquire(false, Math.max(0, unit.toNanos(time)));
+    }
+
+    /**
+     * A condition of the lock this lock currently resolves to. It has to be awaited and signalled
+     * with this lock held, and can't be used anymore once this JsonMeta moved to another tree or
+     * the subtree locking of its tree changed.
+     */
+    @Override
+    public Condition newCondition() {
+        return focus(false).newCondition();
+    }
+
+    private void lock(boolean read) {
+        LockMetrics metrics = getMetrics();
+        long start = metrics == null ? 0 : System.nanoTime();
+        Thread holder = metrics == null ? null : otherHolder();
+
         while (true) {
-            JsonMeta parentParent = parent.getParent();
-            if (parentParent != null) {
-                parentParent.getLock().lock();
+            Lock focus = focus(read);
+            focus.lock();
 
-                if (parent.getParent() == parentParent) {
-                    break;
+            if (focus(read) == focus) {
+                break;
+            }
+
+            // Parent changed. retry.
+            focus.unlock();
+        }
+
+        if (metrics != null) {
+            metrics.acquired(read, System.nanoTime() - start, holder);
+        }
+    }
+
+    /**
+     * Same as {@link #lock(boolean)}, but it can fail.
+     *
+     * @param timeout Nanoseconds to wait at most, 0 to not wait or FOREVER to wait until
+     *                interrupted
+     */
+    private boolean acquire(boolean read, long timeout) throws InterruptedException {
+        LockMetrics metrics = getMetrics();
+        long start = System.nanoTime();
+        Thread holder = metrics == null ? null : otherHolder();
+
+        boolean acquired = false;
+        try {
+            while (true) {
+                Lock focus = focus(read);
+                if (!take(focus, remaining(start, timeout)))
+                    return false;
+
+                if (focus(read) == focus) {
+                    acquired = true;
+                    return true;
                 }
 
                 // Parent changed. retry.
-                parentParent.getLock().unlock();
-
-            } else {
-                current.lock();
-                if (parent.getParent() == null) {
-                    break;
+                focus.unlock();
+            }
+        } finally {
+            if (metrics != null) {
+                long waited = System.nanoTime() - start;
+                if (acquired) {
+                    metrics.acquired(read, waited, holder);
+                } else {
+                    metrics.failed(read, waited, holder);
                 }
-                current.unlock();
             }
         }
     }
 
-    public void unlock() {
-        JsonMeta parentParent = parent.getParent();
-        if (parentParent != null) {
-            parentParent.getLock().unlock();
-        } else {
-            current.unlock();
+    private static boolean take(Lock lock, long timeout) throws InterruptedException {
+        if (timeout == 0)
+            return lock.tryLock();
+        if (timeout == FOREVER) {
+            lock.lockInterruptibly();
+            return true;
         }
+        return lock.tryLock(timeout, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * What is left of a timeout of take that started at {@code start}.
+     */
+    private static long remaining(long start, long timeout) {
+        if (timeout == 0 || timeout == FOREVER)
+            return timeout;
+        return Math.max(0, timeout - (System.nanoTime() - start));
     }
 
     public Lock getCurrentLock() {
+        return focus(false);
+    }
+
+    /**
+     * The lock that is currently taken for this lock: one of the root's, or the one of the
+     * subtree this JsonMeta is in.
+     */
+    private Lock focus(boolean read) {
+        JsonMeta root = parent;
+        int depth = 0;
+        for (JsonMeta parentParent = root.getParent(); parentParent != null; parentParent = root.getParent()) {
+            root = parentParent;
+            depth++;
+        }
+
+        RefocusableLock rootLock = root.getLock();
+        int lockDepth = rootLock.subtreeLockDepth;
+        if (lockDepth == 0 || depth < lockDepth) {
+            // With subtree locking the shared side of the root's lock is the intention lock
+            return read && lockDepth == 0 ? rootLock.current.readLock() : rootLock.treeLock;
+        }
+
+        JsonMeta owner = parent;
+        for (int i = depth; i > lockDepth && owner != null; i--) {
+            owner = owner.getParent();
+        }
+        if (owner == null) {
+            // Moved while walking, the caller retries
+            return rootLock.treeLock;
+        }
+        return read ? owner.getLock().subtreeReadLock : owner.getLock().subtreeLock;
+    }
+
+    /**
+     * The thread holding the lock this lock currently resolves to exclusively, or null. With
+     * subtree locking that can also be a thread holding the whole tree.
+     */
+    public Thread getHolder() {
+        return ((View) focus(false)).holder();
+    }
+
+    private Thread otherHolder() {
+        Thread holder = getHolder();
+        return holder == Thread.currentThread() ? null : holder;
+    }
+
+    /**
+     * The shared side of this lock. It cannot be upgraded: taking the exclusive lock while
+     * holding it fails or deadlocks.
+     */
+    public Lock readLock() {
+        return readLock;
+    }
+
+    /**
+     * Whether the tree this lock belongs to allows shared reads, which is decided by its root.
+     */
+    public boolean isSharedReads() {
         JsonMeta parentParent = parent.getParent();
-        if (parentParent != null) {
-            return parentParent.getLock();
-        } else {
-            return current;
+        return parentParent != null ? parentParent.getLock().isSharedReads() : sharedReads;
+    }
+
+    void setSharedReads(boolean sharedReads) {
+        this.sharedReads = sharedReads;
+    }
+
+    /**
+     * The metrics of the tree this lock belongs to, which are set on its root.
+     */
+    public LockMetrics getMetrics() {
+        JsonMeta parentParent = parent.getParent();
+        return parentParent != null ? parentParent.getLock().getMetrics() : metrics;
+    }
+
+    void setMetrics(LockMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Set the subtree lock depth of the tree this is the root lock of, 0 to turn subtree
+     * locking off.
+     */
+    void setSubtreeLockDepth(int depth) {
+        treeLock.lock();
+        try {
+            // Locks the caller holds would resolve differently once it changed
+            if (current.getWriteHoldCount() > 1)
+                throw new IllegalStateException("Cannot change subtree locking while holding the lock");
+            subtreeLockDepth = depth;
+        } finally {
+            treeLock.unlock();
         }
     }
 
-    @Override
-    public void lockInterruptibly() throws InterruptedException {
-        throw new UnsupportedOperationException();
+    /**
+     * With subtree locking, how many levels below this JsonMeta the JsonMetas with their own locks
+     * are, otherwise 0. Also 0 if this JsonMeta is at or below the lock depth.
+     */
+    int getSubtreeDistance() {
+        JsonMeta root = parent;
+        int depth = 0;
+        for (JsonMeta parentParent = root.getParent(); parentParent != null; parentParent = root.getParent()) {
+            root = parentParent;
+            depth++;
+        }
+        int lockDepth = root.getLock().subtreeLockDepth;
+        return lockDepth > depth ? lockDepth - depth : 0;
     }
 
-    @Override
-    public boolean tryLock() {
-        return false;
+    /**
+     * The shared side of the root's lock, which keeps the part of the tree above the subtree lock
+     * depth from changing.
+     */
+    Lock intentionLock() {
+        return intentionLock;
     }
 
-    @Override
-    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
-        return false;
+    private Thread treeHolder() {
+        return parent.getRoot().getLock().current.owner();
     }
 
-    @Override
-    public Condition newCondition() {
-        throw new UnsupportedOperationException();
+    private static final class OwnedLock extends ReentrantReadWriteLock {
+        private static final long serialVersionUID = 1L;
+
+        private Thread owner() {
+            return getOwner();
+        }
+    }
+
+    private final class ReadLock implements Lock {
+        @Override
+        public void lock() {
+            RefocusableLock.this.lock(true);
+        }
+
+        @Override
+        public void unlock() {
+            focus(true).unlock();
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            acquire(true, FOREVER);
+        }
+
+        @Override
+        public boolean tryLock() {
+            try {
+                return acquire(true, 0);
+            } catch (InterruptedException e) {
+                // Not thrown without waiting
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return acquire(true, Math.max(0, unit.toNanos(time)));
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * A lock this lock resolves to, which may consist of several locks.
+     */
+    private abstract static class View implements Lock {
+        /**
+         * @param timeout Same as the timeout of {@link RefocusableLock#acquire(boolean, long)}
+         */
+        abstract boolean acquire(long timeout) throws InterruptedException;
+
+        abstract Thread holder();
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            acquire(FOREVER);
+        }
+
+        @Override
+        public boolean tryLock() {
+            try {
+                return acquire(0);
+            } catch (InterruptedException e) {
+                // Not thrown without waiting
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            return acquire(Math.max(0, unit.toNanos(time)));
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * The exclusive side of the lock of a root.
+     */
+    private final class TreeLock extends View {
+        @Override
+        public void lock() {
+            checkUpgrade();
+            current.writeLock().lock();
+        }
+
+        @Override
+        boolean acquire(long timeout) throws InterruptedException {
+            checkUpgrade();
+            return take(current.writeLock(), timeout);
+        }
+
+        private void checkUpgrade() {
+            if (current.getReadHoldCount() > 0 && !current.isWriteLockedByCurrentThread())
+                throw new IllegalStateException("Cannot lock the whole tree while holding its shared lock");
+        }
+
+        @Override
+        public void unlock() {
+            current.writeLock().unlock();
+        }
+
+        @Override
+        Thread holder() {
+            return current.owner();
+        }
+
+        @Override
+        public Condition newCondition() {
+            return current.writeLock().newCondition();
+        }
+    }
+
+    /**
+     * The shared side of the lock of the root of this lock's tree.
+     */
+    private final class IntentionLock extends View {
+        @Override
+        public void lock() {
+            while (true) {
+                RefocusableLock root = parent.getRoot().getLock();
+                root.current.readLock().lock();
+
+                if (parent.getRoot().getLock() == root) {
+                    break;
+                }
+
+                // Moved to another tree. retry.
+                root.current.readLock().unlock();
+            }
+        }
+
+        @Override
+        boolean acquire(long timeout) throws InterruptedException {
+            long start = System.nanoTime();
+            while (true) {
+                RefocusableLock root = parent.getRoot().getLock();
+                if (!take(root.current.readLock(), remaining(start, timeout)))
+                    return false;
+
+                if (parent.getRoot().getLock() == root) {
+                    return true;
+                }
+
+                // Moved to another tree. retry.
+                root.current.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void unlock() {
+            parent.getRoot().getLock().current.readLock().unlock();
+        }
+
+        @Override
+        Thread holder() {
+            return treeHolder();
+        }
     }
 
+    /**
+     * The lock of a JsonMeta at the subtree lock depth, which also takes the intention lock.
+     */
+    private final class SubtreeLock extends View {
+        private final boolean read;
+
+        private SubtreeLock(boolean read) {
+            this.read = read;
+        }
+
+        private Lock own() {
+            return read ? current.readLock() : current.writeLock();
+        }
+
+        @Override
+        public void lock() {
+            intentionLock.lock();
+            own().lock();
+        }
+
+        @Override
+        boolean acquire(long timeout) throws InterruptedException {
+            long start = System.nanoTime();
+            if (!intentionLock.acquire(timeout))
+                return false;
+
+            boolean acquired = false;
+            try {
+                acquired = take(own(), remaining(start, timeout));
+                return acquired;
+            } finally {
+                if (!acquired) {
+                    intentionLock.unlock();
+                }
+            }
+        }
+
+        @Override
+        public void unlock() {
+            own().unlock();
+            intentionLock.unlock();
+        }
+
+        @Override
+        Thread holder() {
+            Thread holder = current.owner();
+            return holder != null ? holder : treeHolder();
+        }
+
+        @Override
+        public Condition newCondition() {
+            if (read)
+                throw new UnsupportedOperationException();
+            return current.writeLock().newCondition();
+        }
+    }
 
 //    public void lock() {
 //        while (true) {
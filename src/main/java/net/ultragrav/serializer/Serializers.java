@@ -16,6 +16,45 @@ public class Serializers {
 
     private static final Map<Class<?>, Serializer<?>> CUSTOM_SERIALIZERS = new HashMap<>();
 
+    private static final int CUSTOM_TYPE = 0xFF;
+
+    /**
+     * Set in the type byte of values written in compact mode, see {@link GravSerializer#setCompact(boolean)}.
+     * The custom type already has it set, so compact custom values use their own type.
+     */
+    private static final int COMPACT_FLAG = 0x40;
+    private static final int COMPACT_CUSTOM_TYPE = 0xFE;
+
+    /**
+     * Bumped whenever a custom serializer is registered, cached dispatches from an older
+     * generation are recomputed on their next use.
+     */
+    private static volatile int generation = 0;
+
+    /**
+     * Resolved type per concrete class, so the serializer lists are only scanned once per class.
+     */
+    private static final ClassValue<Dispatch> DISPATCH = new ClassValue<Dispatch>() {
+        @Override
+        protected Dispatch computeValue(Class<?> type) {
+            return resolve(type);
+        }
+    };
+
+    private static final class Dispatch {
+        private final int generation;
+        private final int type; // Type byte, 0 if there is no serializer
+        private final Serializer<?> serializer;
+        private final String customClassName;
+
+        private Dispatch(int generation, int type, Serializer<?> serializer, String customClassName) {
+            this.generation = generation;
+            this.type = type;
+            this.serializer = serializer;
+            this.customClassName = customClassName;
+        }
+    }
+
     static {
         //0
         SERIALIZERS.add(new SerializerElement(String.class, new Serializer<String>() {
@@ -69,24 +108,28 @@ public class Serializers {
         SERIALIZERS.add(new SerializerElement(Integer.class, new Serializer<Integer>() {
             @Override
             public void serialize(GravSerializer serializer, Object t) {
-                serializer.writeInt((Integer) t);
+                serializer.writeSize((Integer) t);
             }
 
             @Override
             public Integer deserialize(GravSerializer serializer, Object... args) {
-                return serializer.readInt();
+                return serializer.readSize();
             }
         }));
         //5
         SERIALIZERS.add(new SerializerElement(Long.class, new Serializer<Long>() {
             @Override
             public void serialize(GravSerializer serializer, Object t) {
-                serializer.writeLong((Long) t);
+                if (serializer.isCompact()) {
+                    serializer.writeCompactLong((Long) t);
+                } else {
+                    serializer.writeLong((Long) t);
+                }
             }
 
             @Override
             public Long deserialize(GravSerializer serializer, Object... args) {
-                return serializer.readLong();
+                return serializer.isCompact() ? serializer.readCompactLong() : serializer.readLong();
             }
         }));
         //6
@@ -106,7 +149,7 @@ public class Serializers {
             @Override
             public void serialize(GravSerializer serializer, Object t) {
                 Map<?, ?> map = (Map<?, ?>) t;
-                serializer.writeInt(map.size());
+                serializer.writeSize(map.size());
                 for (Object o : map.entrySet()) {
                     serializeObject(serializer, o);
                 }
@@ -114,7 +157,7 @@ public class Serializers {
 
             @Override
             public Map<?, ?> deserialize(GravSerializer serializer, Object... args) {
-                int size = serializer.readInt();
+                int size = serializer.readSize();
                 Map<Object, Object> map = new HashMap<>(size);
                 for (int i = 0; i < size; i++) {
                     Map.Entry<?, ?> entry = (Map.Entry<?, ?>) deserializeObject(serializer);
@@ -147,7 +190,7 @@ public class Serializers {
             @Override
             public void serialize(GravSerializer serializer, Object t) {
                 List<?> l = (List<?>) t;
-                serializer.writeInt(l.size());
+                serializer.writeSize(l.size());
                 for (Object o : l) {
                     serializeObject(serializer, o);
                 }
@@ -155,7 +198,7 @@ public class Serializers {
 
             @Override
             public List<?> deserialize(GravSerializer serializer, Object... args) {
-                int size = serializer.readInt();
+                int size = serializer.readSize();
                 List<Object> l = new ArrayList<>(size);
                 for (int i = 0; i < size; i++) {
                     l.add(deserializeObject(serializer, args));
@@ -176,49 +219,41 @@ public class Serializers {
                     useName = ann.useName();
                 }
 
-                serializer.writeString(t.getClass().getName());
+                serializer.writeClassName(t.getClass().getName());
 
                 if (useName) {
-                    serializer.writeInt(-1);
+                    serializer.writeSize(-1);
                     serializer.writeString(e.name());
                 } else
-                    serializer.writeInt(e.ordinal());
+                    serializer.writeSize(e.ordinal());
             }
 
             @SuppressWarnings({"unchecked", "rawtypes"})
             @Override
             public Enum<?> deserialize(GravSerializer serializer, Object... args) {
-                String className = serializer.readString();
-                className = computeRelocatedClassName(className);
+                Class<?> clazz = serializer.readClass(className -> resolveClass(className, "Class not found for enum: "));
 
-                int ordinal = serializer.readInt();
+                int ordinal = serializer.readSize();
                 String name = null;
                 if (ordinal == -1) {
                     name = serializer.readString();
                 }
 
-                try {
-                    Class<?> clazz = Class.forName(className);
-                    if (!clazz.isEnum()) {
-                        return null;
+                if (!clazz.isEnum()) {
+                    return null;
+                }
+                if (ordinal == -1) {
+                    try {
+                        return (Enum<?>) Enum.valueOf((Class<? extends Enum>) clazz, name);
+                    } catch (IllegalArgumentException e) {
+                        throw new ObjectDeserializationException("Enum value " + name + " does not exist in " + clazz.getName(), ObjectDeserializationException.DeserializationExceptionCause.UNKNOWN);
                     }
-                    if (ordinal == -1) {
-                        try {
-                            return (Enum<?>) Enum.valueOf((Class<? extends Enum>) clazz, name);
-                        } catch (IllegalArgumentException e) {
-                            throw new ObjectDeserializationException("Enum value " + name + " does not exist in " + clazz.getName(), ObjectDeserializationException.DeserializationExceptionCause.UNKNOWN);
-                        }
-                    } else {
-                        try {
-                            return (Enum<?>) clazz.getEnumConstants()[ordinal];
-                        } catch (ArrayIndexOutOfBoundsException e) {
-                            throw new ObjectDeserializationException("Enum ordinal " + ordinal + " does not exist in " + clazz.getName(), ObjectDeserializationException.DeserializationExceptionCause.UNKNOWN);
-                        }
+                } else {
+                    try {
+                        return (Enum<?>) clazz.getEnumConstants()[ordinal];
+                    } catch (ArrayIndexOutOfBoundsException e) {
+                        throw new ObjectDeserializationException("Enum ordinal " + ordinal + " does not exist in " + clazz.getName(), ObjectDeserializationException.DeserializationExceptionCause.UNKNOWN);
                     }
-                } catch (ClassNotFoundException e) {
-                    throw new ObjectDeserializationException(
-                            "Class not found for enum: " + className, e,
-                            ObjectDeserializationException.DeserializationExceptionCause.CLASS_NOT_FOUND);
                 }
             }
         }));
@@ -238,21 +273,12 @@ public class Serializers {
         SERIALIZERS.add(new SerializerElement(int[].class, new Serializer<int[]>() {
             @Override
             public void serialize(GravSerializer serializer, Object t) {
-                int[] arr = (int[]) t;
-                serializer.writeInt(arr.length);
-                for (int i : arr) {
-                    serializer.writeInt(i);
-                }
+                serializer.writeIntArray((int[]) t);
             }
 
             @Override
             public int[] deserialize(GravSerializer serializer, Object... args) {
-                int len = serializer.readInt();
-                int[] ret = new int[len];
-                for (int i = 0; i < len; i++) {
-                    ret[i] = serializer.readInt();
-                }
-                return ret;
+                return serializer.readIntArray();
             }
         }));
         //13
@@ -260,14 +286,14 @@ public class Serializers {
             @Override
             public void serialize(GravSerializer serializer, Object t) {
                 // Separate old and new deserialization methods, since length can never be negative
-                serializer.writeInt(-1);
+                serializer.writeSize(-1);
 
                 // Write the class name of the array so it can be used to create the correct type of array later
-                serializer.writeString(t.getClass().getComponentType().getName());
+                serializer.writeClassName(t.getClass().getComponentType().getName());
 
                 // Write the elements of the array
                 Object[] arr = (Object[]) t;
-                serializer.writeInt(arr.length);
+                serializer.writeSize(arr.length);
                 for (Object obj : arr) {
                     serializeObject(serializer, obj);
                 }
@@ -276,7 +302,7 @@ public class Serializers {
             @Override
             public Object[] deserialize(GravSerializer serializer, Object... args) {
                 // Read the (old) length)
-                int len = serializer.readInt();
+                int len = serializer.readSize();
                 if (len != -1) {
                     // Old deserialization
                     Object[] ret = new Object[len];
@@ -285,21 +311,11 @@ public class Serializers {
                     }
                     return ret;
                 } else {
-                    // Read the class name
-                    String className = serializer.readString();
-                    className = computeRelocatedClassName(className);
-
-                    // Get the class
-                    Class<?> clazz;
-                    try {
-                        clazz = Class.forName(className);
-                    } catch (ClassNotFoundException e) {
-                        throw new ObjectDeserializationException("Could not find array class: " + className, e,
-                                ObjectDeserializationException.DeserializationExceptionCause.CLASS_NOT_FOUND);
-                    }
+                    // Read the class name and get the class
+                    Class<?> clazz = serializer.readClass(className -> resolveClass(className, "Could not find array class: "));
 
                     // Read the length in the new position
-                    len = serializer.readInt();
+                    len = serializer.readSize();
 
                     // Create an array of the correct type
                     Object[] ret = (Object[]) Array.newInstance(clazz, len);
@@ -341,42 +357,24 @@ public class Serializers {
         SERIALIZERS.add(new SerializerElement(long[].class, new Serializer<long[]>() {
             @Override
             public void serialize(GravSerializer serializer, Object t) {
-                long[] arr = (long[]) t;
-                serializer.writeInt(arr.length);
-                for (long l : arr) {
-                    serializer.writeLong(l);
-                }
+                serializer.writeLongArray((long[]) t);
             }
 
             @Override
             public long[] deserialize(GravSerializer serializer, Object... args) {
-                int len = serializer.readInt();
-                long[] arr = new long[len];
-                for (int i = 0; i < len; i++) {
-                    arr[i] = serializer.readLong();
-                }
-                return arr;
+                return serializer.readLongArray();
             }
         }));
         // 17
         SERIALIZERS.add(new SerializerElement(short[].class, new Serializer<short[]>() {
             @Override
             public void serialize(GravSerializer serializer, Object t) {
-                short[] arr = (short[]) t;
-                serializer.writeInt(arr.length);
-                for (short s : arr) {
-                    serializer.writeShort(s);
-                }
+                serializer.writeShortArray((short[]) t);
             }
 
             @Override
             public short[] deserialize(GravSerializer serializer, Object... args) {
-                int len = serializer.readInt();
-                short[] arr = new short[len];
-                for (int i = 0; i < len; i++) {
-                    arr[i] = serializer.readShort();
-                }
-                return arr;
+                return serializer.readShortArray();
             }
         }));
         // 18
@@ -407,42 +405,24 @@ public class Serializers {
         SERIALIZERS.add(new SerializerElement(float[].class, new Serializer<float[]>() {
             @Override
             public void serialize(GravSerializer serializer, Object t) {
-                float[] arr = (float[]) t;
-                serializer.writeInt(arr.length);
-                for (float f : arr) {
-                    serializer.writeFloat(f);
-                }
+                serializer.writeFloatArray((float[]) t);
             }
 
             @Override
             public float[] deserialize(GravSerializer serializer, Object... args) {
-                int len = serializer.readInt();
-                float[] arr = new float[len];
-                for (int i = 0; i < len; i++) {
-                    arr[i] = serializer.readFloat();
-                }
-                return arr;
+                return serializer.readFloatArray();
             }
         }));
         // 21
         SERIALIZERS.add(new SerializerElement(double[].class, new Serializer<double[]>() {
             @Override
             public void serialize(GravSerializer serializer, Object t) {
-                double[] arr = (double[]) t;
-                serializer.writeInt(arr.length);
-                for (double d : arr) {
-                    serializer.writeDouble(d);
-                }
+                serializer.writeDoubleArray((double[]) t);
             }
 
             @Override
             public double[] deserialize(GravSerializer serializer, Object... args) {
-                int len = serializer.readInt();
-                double[] arr = new double[len];
-                for (int i = 0; i < len; i++) {
-                    arr[i] = serializer.readDouble();
-                }
-                return arr;
+                return serializer.readDoubleArray();
             }
         }));
         // 22
@@ -462,7 +442,7 @@ public class Serializers {
             @Override
             public void serialize(GravSerializer serializer, Object t) {
                 char[] arr = (char[]) t;
-                serializer.writeInt(arr.length);
+                serializer.writeSize(arr.length);
                 for (char c : arr) {
                     serializer.writeChar(c);
                 }
@@ -470,7 +450,7 @@ public class Serializers {
 
             @Override
             public char[] deserialize(GravSerializer serializer, Object... args) {
-                int len = serializer.readInt();
+                int len = serializer.readSize();
                 char[] arr = new char[len];
                 for (int i = 0; i < len; i++) {
                     arr[i] = serializer.readChar();
@@ -494,12 +474,12 @@ public class Serializers {
         SERIALIZERS.add(new SerializerElement(AtomicInteger.class, new Serializer<AtomicInteger>() {
             @Override
             public void serialize(GravSerializer serializer, Object t) {
-                serializer.writeInt(((AtomicInteger) t).get());
+                serializer.writeSize(((AtomicInteger) t).get());
             }
 
             @Override
             public AtomicInteger deserialize(GravSerializer serializer, Object... args) {
-                return new AtomicInteger(serializer.readInt());
+                return new AtomicInteger(serializer.readSize());
             }
         }));
         // 26
@@ -508,7 +488,7 @@ public class Serializers {
             public void serialize(GravSerializer serializer, Object t) {
                 AtomicIntegerArray arr = (AtomicIntegerArray) t;
                 int len = arr.length();
-                serializer.writeInt(len);
+                serializer.writeSize(len);
                 for (int i = 0; i < len; i++) {
                     serializer.writeInt(arr.get(i));
                 }
@@ -516,7 +496,7 @@ public class Serializers {
 
             @Override
             public AtomicIntegerArray deserialize(GravSerializer serializer, Object... args) {
-                int len = serializer.readInt();
+                int len = serializer.readSize();
                 AtomicIntegerArray ret = new AtomicIntegerArray(len);
                 for (int i = 0; i < len; i++) {
                     ret.set(i, serializer.readInt());
@@ -542,7 +522,7 @@ public class Serializers {
             public void serialize(GravSerializer serializer, Object t) {
                 AtomicLongArray arr = (AtomicLongArray) t;
                 int len = arr.length();
-                serializer.writeInt(len);
+                serializer.writeSize(len);
                 for (int i = 0; i < len; i++) {
                     serializer.writeLong(arr.get(i));
                 }
@@ -550,7 +530,7 @@ public class Serializers {
 
             @Override
             public AtomicLongArray deserialize(GravSerializer serializer, Object... args) {
-                int len = serializer.readInt();
+                int len = serializer.readSize();
                 AtomicLongArray ret = new AtomicLongArray(len);
                 for (int i = 0; i < len; i++) {
                     ret.set(i, serializer.readLong());
@@ -575,7 +555,7 @@ public class Serializers {
             @Override
             public void serialize(GravSerializer serializer, Object t) {
                 Set<?> set = (Set<?>) t;
-                serializer.writeInt(set.size());
+                serializer.writeSize(set.size());
                 for (Object o : set) {
                     serializeObject(serializer, o);
                 }
@@ -583,7 +563,7 @@ public class Serializers {
 
             @Override
             public Set<?> deserialize(GravSerializer serializer, Object... args) {
-                int len = serializer.readInt();
+                int len = serializer.readSize();
                 Set<Object> ret = new HashSet<>(len);
                 for (int i = 0; i < len; i++) {
                     ret.add(deserializeObject(serializer, args));
@@ -622,30 +602,20 @@ public class Serializers {
             @Override
             public void serialize(GravSerializer serializer, Object t) {
                 serializer.writeByteArray(((BigDecimal) t).unscaledValue().toByteArray());
-                serializer.writeInt(((BigDecimal) t).scale());
+                serializer.writeSize(((BigDecimal) t).scale());
             }
 
             @Override
             public BigDecimal deserialize(GravSerializer serializer, Object... args) {
                 byte[] bytes = serializer.readByteArray();
-                int scale = serializer.readInt();
+                int scale = serializer.readSize();
                 return new BigDecimal(new BigInteger(bytes), scale);
             }
         }));
     }
 
     public static boolean canSerialize(Class<?> clazz) {
-        for (SerializerElement s : SERIALIZERS) {
-            if (s.getClazz().isAssignableFrom(clazz)) {
-                return true;
-            }
-        }
-        for (Class<?> s : CUSTOM_SERIALIZERS.keySet()) {
-            if (s.isAssignableFrom(clazz)) {
-                return true;
-            }
-        }
-        return false;
+        return dispatch(clazz).serializer != null;
     }
 
     public static void serializeObject(GravSerializer serializer, Object obj) {
@@ -654,31 +624,57 @@ public class Serializers {
             return;
         }
 
-        // Fix for JsonMeta
-        if (obj instanceof JsonMeta) {
-            SerializerElement s = SERIALIZERS.get(31);
-            serializer.writeByte((byte) (31 + 1));
-            s.getSerializer().serialize(serializer, obj);
-            return;
+        Dispatch dispatch = dispatch(obj.getClass());
+        if (dispatch.serializer == null) {
+            throw new IllegalArgumentException("Cannot serialize object of type: " + obj.getClass().getName());
+        }
+
+        int type = dispatch.type;
+        if (serializer.isCompact()) {
+            type = type == CUSTOM_TYPE ? COMPACT_CUSTOM_TYPE : type | COMPACT_FLAG;
+        }
+        serializer.writeByte((byte) type);
+        if (dispatch.type == CUSTOM_TYPE) {
+            serializer.writeClassName(dispatch.customClassName);
+        }
+        dispatch.serializer.serialize(serializer, obj);
+    }
+
+    private static Dispatch dispatch(Class<?> clazz) {
+        Dispatch dispatch = DISPATCH.get(clazz);
+        if (dispatch.generation != generation) {
+            DISPATCH.remove(clazz);
+            dispatch = DISPATCH.get(clazz);
+        }
+        return dispatch;
+    }
+
+    /**
+     * First match wins: built-in serializers in list order, then custom serializers.
+     * JsonMeta is special cased since it is also a GravSerializable.
+     */
+    private static Dispatch resolve(Class<?> clazz) {
+        if (JsonMeta.class.isAssignableFrom(clazz)) {
+            return new Dispatch(generation, 31 + 1, SERIALIZERS.get(31).getSerializer(), null);
         }
 
         for (int i = 0; i < SERIALIZERS.size(); i++) {
             SerializerElement s = SERIALIZERS.get(i);
-            if (s.getClazz().isInstance(obj)) {
-                serializer.writeByte((byte) (i + 1));
-                s.getSerializer().serialize(serializer, obj);
-                return;
+            if (s.getClazz().isAssignableFrom(clazz)) {
+                return new Dispatch(generation, i + 1, s.getSerializer(), null);
             }
         }
-        for (Class<?> clazz : CUSTOM_SERIALIZERS.keySet()) {
-            if (clazz.isInstance(obj)) {
-                serializer.writeByte((byte) 0xFF);
-                serializer.writeString(clazz.getName());
-                CUSTOM_SERIALIZERS.get(clazz).serialize(serializer, obj);
-                return;
+
+        synchronized (CUSTOM_SERIALIZERS) {
+            // Read inside the lock so the generation matches the custom serializers we saw
+            int gen = generation;
+            for (Map.Entry<Class<?>, Serializer<?>> entry : CUSTOM_SERIALIZERS.entrySet()) {
+                if (entry.getKey().isAssignableFrom(clazz)) {
+                    return new Dispatch(gen, CUSTOM_TYPE, entry.getValue(), entry.getKey().getName());
+                }
             }
+            return new Dispatch(gen, 0, null, null);
         }
-        throw new IllegalArgumentException("Cannot serialize object of type: " + obj.getClass().getName());
     }
 
     public static Object deserializeObject(GravSerializer serializer, Object... args) {
@@ -686,20 +682,41 @@ public class Serializers {
         if (type == 0) {
             return null;
         }
-        if (type == 0xFF) {
-            Class<?> clazz;
-            String className = serializer.readString();
-            className = computeRelocatedClassName(className);
-            try {
-                clazz = Class.forName(className);
-            } catch (ClassNotFoundException e) {
-                throw new ObjectDeserializationException("Cannot deserialize object due to missing Custom Serializer class: " + className,
-                        ObjectDeserializationException.DeserializationExceptionCause.CLASS_NOT_FOUND);
-            }
 
-            Serializer<?> ser = CUSTOM_SERIALIZERS.get(clazz);
+        // The value is read in the mode it was written in
+        boolean compact;
+        if (type == CUSTOM_TYPE) {
+            compact = false;
+        } else if (type == COMPACT_CUSTOM_TYPE) {
+            compact = true;
+            type = CUSTOM_TYPE;
+        } else {
+            compact = (type & COMPACT_FLAG) != 0;
+            type &= ~COMPACT_FLAG;
+        }
+
+        boolean previous = serializer.isCompact();
+        if (compact == previous) {
+            return deserializeType(serializer, type, args);
+        }
+        serializer.setCompact(compact);
+        try {
+            return deserializeType(serializer, type, args);
+        } finally {
+            serializer.setCompact(previous);
+        }
+    }
+
+    private static Object deserializeType(GravSerializer serializer, int type, Object[] args) {
+        if (type == CUSTOM_TYPE) {
+            Class<?> clazz = serializer.readClass(className -> resolveClass(className, "Cannot deserialize object due to missing Custom Serializer class: "));
+
+            Serializer<?> ser;
+            synchronized (CUSTOM_SERIALIZERS) {
+                ser = CUSTOM_SERIALIZERS.get(clazz);
+            }
             if (ser == null) {
-                throw new ObjectDeserializationException("Cannot deserialize object due to missing Serializer (Custom Serializer): " + className,
+                throw new ObjectDeserializationException("Cannot deserialize object due to missing Serializer (Custom Serializer): " + clazz.getName(),
                         ObjectDeserializationException.DeserializationExceptionCause.NO_DESERIALIZATION_METHOD);
             }
             try {
@@ -729,13 +746,26 @@ public class Serializers {
      * @param serializer Serializer
      */
     public static void registerSerializer(Class<?> clazz, Serializer<?> serializer) {
-        CUSTOM_SERIALIZERS.put(clazz, serializer);
+        synchronized (CUSTOM_SERIALIZERS) {
+            CUSTOM_SERIALIZERS.put(clazz, serializer);
+            generation++;
+        }
     }
 
     public static void addRelocation(String source, String target) {
         RELOCATION_MAPPINGS.put(source, target);
     }
 
+    private static Class<?> resolveClass(String className, String errorMessage) {
+        className = computeRelocatedClassName(className);
+        try {
+            return Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            throw new ObjectDeserializationException(errorMessage + className, e,
+                    ObjectDeserializationException.DeserializationExceptionCause.CLASS_NOT_FOUND);
+        }
+    }
+
     private static String computeRelocatedClassName(String className) {
         // Do exact matches first
         for (Map.Entry<String, String> mapping : RELOCATION_MAPPINGS.entrySet()) {
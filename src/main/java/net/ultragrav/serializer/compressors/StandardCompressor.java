@@ -6,9 +6,13 @@ import net.ultragrav.serializer.DecompressionException;
 import javax.xml.crypto.Data;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
 import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 public class StandardCompressor implements Compressor {
     public static final StandardCompressor instance = new StandardCompressor();
@@ -48,4 +52,14 @@ public class StandardCompressor implements Compressor {
             throw new DecompressionException(e.getMessage());
         }
     }
+
+    @Override
+    public OutputStream compress(OutputStream out) {
+        return new DeflaterOutputStream(out);
+    }
+
+    @Override
+    public InputStream decompress(InputStream in) {
+        return new InflaterInputStream(in);
+    }
 }
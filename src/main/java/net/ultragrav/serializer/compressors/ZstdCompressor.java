@@ -2,10 +2,16 @@ package net.ultragrav.serializer.compressors;
 
 import com.github.luben.zstd.Zstd;
 import com.github.luben.zstd.ZstdException;
+import com.github.luben.zstd.ZstdInputStream;
 import net.ultragrav.serializer.ArrayUtils;
 import net.ultragrav.serializer.Compressor;
 import net.ultragrav.serializer.DecompressionException;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+
 public class ZstdCompressor implements Compressor {
     public static final ZstdCompressor instance = new ZstdCompressor();
 
@@ -37,4 +43,23 @@ public class ZstdCompressor implements Compressor {
             throw new DecompressionException(e.getMessage());
         }
     }
+
+    /**
+     * Streams the zstd frame after the length header. Compressing a stream still buffers
+     * everything, the decompressed length has to be written first.
+     */
+    @Override
+    public InputStream decompress(InputStream in) throws IOException {
+        byte[] lenB = new byte[4];
+        int read = 0;
+        int i;
+        while (read < 4 && (i = in.read(lenB, read, 4 - read)) != -1) {
+            read += i;
+        }
+        if (read < 4) {
+            // Too short to be compressed, same as decompress(byte[])
+            return new SequenceInputStream(new ByteArrayInputStream(lenB, 0, read), in);
+        }
+        return new ZstdInputStream(in);
+    }
 }
@@ -0,0 +1,141 @@
+package net.ultragrav.serializer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestDirectGravSerializer {
+    private static final UUID ID = UUID.randomUUID();
+
+    private static void write(GravSerializer ser) {
+        ser.writeByte((byte) 1);
+        ser.writeInt(123456789);
+        ser.writeInt(-5, true);
+        ser.writeLong(Long.MIN_VALUE + 7);
+        ser.writeLong(42, true);
+        ser.writeShort((short) -2);
+        ser.writeDouble(Math.PI);
+        ser.writeString("The quick brown fox");
+        ser.writeUUID(ID);
+        ser.writeIntArray(new int[]{1, -2, 3, Integer.MAX_VALUE});
+        ser.writeLongArray(new long[]{1, -2, Long.MAX_VALUE});
+        ser.writeDoubleArray(new double[]{0.5, -1.25});
+        ser.writeObject(new GravSerializer(new byte[]{4, 5, 6}));
+
+        JsonMeta meta = new JsonMeta();
+        meta.set("name", "Test");
+        meta.set("stats.kills", 5);
+        ser.writeObject(meta);
+    }
+
+    private static void read(GravSerializer ser) {
+        assertEquals(1, ser.readByte());
+        assertEquals(123456789, ser.readInt());
+        assertEquals(-5, ser.readInt(true));
+        assertEquals(Long.MIN_VALUE + 7, ser.readLong());
+        assertEquals(42, ser.readLong(true));
+        assertEquals(-2, ser.readShort());
+        assertEquals(Math.PI, ser.readDouble());
+        assertEquals("The quick brown fox", ser.readString());
+        assertEquals(ID, ser.readUUID());
+        assert Arrays.equals(new int[]{1, -2, 3, Integer.MAX_VALUE}, ser.readIntArray());
+        assert Arrays.equals(new long[]{1, -2, Long.MAX_VALUE}, ser.readLongArray());
+        assert Arrays.equals(new double[]{0.5, -1.25}, ser.readDoubleArray());
+        assert Arrays.equals(new byte[]{4, 5, 6}, ser.<GravSerializer>readObject().toByteArray());
+
+        JsonMeta meta = ser.readObject();
+        assertEquals("Test", meta.get("name"));
+        assertEquals(5, (int) meta.get("stats.kills"));
+        assert !ser.hasNext();
+    }
+
+    private static byte[] heapBytes(Consumer<GravSerializer> writer) {
+        GravSerializer ser = new GravSerializer();
+        writer.accept(ser);
+        return ser.toByteArray();
+    }
+
+    @Test
+    public void testSameLayout() {
+        byte[] expected = heapBytes(TestDirectGravSerializer::write);
+
+        // Tiny chunks so values cross chunk boundaries
+        for (int chunkSize : new int[]{16, 17, 1024}) {
+            DirectGravSerializer ser = new DirectGravSerializer(chunkSize);
+            write(ser);
+            assert Arrays.equals(expected, ser.toByteArray());
+            read(ser);
+        }
+
+        read(new GravSerializer(expected));
+    }
+
+    @Test
+    public void testWrapAndSlice() {
+        byte[] expected = heapBytes(TestDirectGravSerializer::write);
+
+        ByteBuffer first = ByteBuffer.allocateDirect(20);
+        first.put(expected, 0, 20).flip();
+        ByteBuffer second = ByteBuffer.wrap(expected, 20, expected.length - 20);
+        DirectGravSerializer wrapped = DirectGravSerializer.wrap(first, second);
+        assertEquals(expected.length, wrapped.sizeLong());
+        read(wrapped);
+        assertThrows(ReadOnlyBufferException.class, () -> wrapped.writeInt(1));
+
+        GravSerializer slice = wrapped.slice(1, 8);
+        assertEquals(123456789, slice.readInt());
+        assertEquals(-5, slice.readInt(true));
+        assertThrows(ReadOnlyBufferException.class, () -> slice.writeByte((byte) 0));
+    }
+
+    @Test
+    public void testWriteTo() throws Exception {
+        byte[] expected = heapBytes(TestDirectGravSerializer::write);
+
+        DirectGravSerializer ser = new DirectGravSerializer(64);
+        write(ser);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(expected.length, ser.writeTo(Channels.newChannel(out)));
+        assert Arrays.equals(expected, out.toByteArray());
+
+        out = new ByteArrayOutputStream();
+        ser.writeToStream(out);
+        assert Arrays.equals(expected, out.toByteArray());
+
+        // Into and out of heap serializers
+        GravSerializer heap = new GravSerializer();
+        heap.writeSerializer(ser);
+        DirectGravSerializer copy = new DirectGravSerializer(32);
+        copy.append(heap.readSerializer());
+        read(copy);
+    }
+
+    @Test
+    public void testMap(@TempDir Path dir) throws Exception {
+        byte[] expected = heapBytes(TestDirectGravSerializer::write);
+
+        DirectGravSerializer ser = new DirectGravSerializer(16);
+        write(ser);
+        Path file = dir.resolve("data.bin");
+        ser.save(file);
+        assert Arrays.equals(expected, Files.readAllBytes(file));
+
+        DirectGravSerializer mapped = DirectGravSerializer.map(file);
+        assertEquals(expected.length, mapped.sizeLong());
+        read(mapped);
+        assertThrows(ReadOnlyBufferException.class, () -> mapped.writeInt(1));
+    }
+}
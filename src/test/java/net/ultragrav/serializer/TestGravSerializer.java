@@ -3,14 +3,23 @@ package net.ultragrav.serializer;
 import net.ultragrav.serializer.compressors.StandardCompressor;
 import net.ultragrav.serializer.compressors.ZstdCompressor;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.*;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class TestGravSerializer {
     private byte[] createRandomBytes(int len) {
@@ -107,6 +116,86 @@ public class TestGravSerializer {
         }
     }
 
+    @Test
+    public void testPrimitiveLayout() {
+        GravSerializer ser = new GravSerializer();
+        ser.writeInt(0x01020304);
+        ser.writeInt(0x01020304, true);
+        ser.writeShort((short) 0x0102);
+        ser.writeLong(0x0102030405060708L);
+        ser.writeLong(0x0102030405060708L, true);
+        ser.writeUUID(new UUID(0x0102030405060708L, 0x090A0B0C0D0E0F10L));
+
+        byte[] expected = {
+                4, 3, 2, 1,
+                1, 2, 3, 4,
+                2, 1,
+                8, 7, 6, 5, 4, 3, 2, 1,
+                1, 2, 3, 4, 5, 6, 7, 8,
+                8, 7, 6, 5, 4, 3, 2, 1, 16, 15, 14, 13, 12, 11, 10, 9
+        };
+        assert Arrays.equals(expected, ser.toByteArray());
+
+        assertEquals(0x01020304, ser.readInt());
+        assertEquals(0x01020304, ser.readInt(true));
+        assertEquals((short) 0x0102, ser.readShort());
+        assertEquals(0x0102030405060708L, ser.readLong());
+        assertEquals(0x0102030405060708L, ser.readLong(true));
+        assertEquals(new UUID(0x0102030405060708L, 0x090A0B0C0D0E0F10L), ser.readUUID());
+    }
+
+    @Test
+    public void testReadPastEnd() {
+        GravSerializer ser = new GravSerializer();
+        ser.writeShort((short) 1);
+
+        assertThrows(IllegalStateException.class, ser::readInt);
+        assertEquals(0, ser.getReadPosition());
+    }
+
+    @Test
+    public void testPrimitiveArrays() {
+        Random random = new Random();
+        int[] ints = random.ints(1000).toArray();
+        long[] longs = random.longs(1000).toArray();
+        double[] doubles = random.doubles(1000).toArray();
+        short[] shorts = new short[1000];
+        float[] floats = new float[1000];
+        for (int i = 0; i < 1000; i++) {
+            shorts[i] = (short) random.nextInt();
+            floats[i] = random.nextFloat();
+        }
+
+        GravSerializer bulk = new GravSerializer();
+        bulk.writeIntArray(ints);
+        bulk.writeLongArray(longs);
+        bulk.writeShortArray(shorts);
+        bulk.writeFloatArray(floats);
+        bulk.writeDoubleArray(doubles);
+
+        // Must match the element by element layout
+        GravSerializer single = new GravSerializer();
+        single.writeInt(ints.length);
+        for (int i : ints) single.writeInt(i);
+        single.writeInt(longs.length);
+        for (long l : longs) single.writeLong(l);
+        single.writeInt(shorts.length);
+        for (short sh : shorts) single.writeShort(sh);
+        single.writeInt(floats.length);
+        for (float f : floats) single.writeFloat(f);
+        single.writeInt(doubles.length);
+        for (double d : doubles) single.writeDouble(d);
+
+        assert Arrays.equals(single.toByteArray(), bulk.toByteArray());
+
+        assert Arrays.equals(ints, bulk.readIntArray());
+        assert Arrays.equals(longs, bulk.readLongArray());
+        assert Arrays.equals(shorts, bulk.readShortArray());
+        assert Arrays.equals(floats, bulk.readFloatArray());
+        assert Arrays.equals(doubles, bulk.readDoubleArray());
+        assert !bulk.hasNext();
+    }
+
     @Test
     public void testIO() throws IOException {
         byte[] bt = createRandomBytes(10000);
@@ -186,6 +275,83 @@ public class TestGravSerializer {
         assert var == num;
     }
 
+    @Test
+    public void testStrings() {
+        Random random = new Random();
+        List<String> strings = new ArrayList<>(Arrays.asList("", "ascii", "\u00e9t\u00e9", "\u4e16\u754c", "\ud83d\ude00 emoji",
+                "lone \ud83d high", "lone \ude00 low", "end \ud83d", "\ude00\ud83d"));
+        for (int i = 0; i < 100; i++) {
+            char[] chars = new char[random.nextInt(50)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = (char) random.nextInt(Character.MAX_VALUE + 1);
+            }
+            strings.add(new String(chars));
+        }
+
+        for (String str : strings) {
+            byte[] expected = str.getBytes(StandardCharsets.UTF_8);
+            for (GravSerializer ser : Arrays.asList(new GravSerializer(), new DirectGravSerializer(16))) {
+                ser.writeString(str);
+                assertEquals(expected.length, ser.readInt());
+                assert Arrays.equals(expected, ser.readBytes(expected.length));
+                ser.setReadPosition(0);
+                assertEquals(new String(expected, StandardCharsets.UTF_8), ser.readString());
+            }
+
+            // The varint length may need more bytes than assumed up front
+            GravSerializer compact = new GravSerializer();
+            compact.setCompact(true);
+            compact.writeString(str);
+            compact.writeString(str);
+            assertEquals(new String(expected, StandardCharsets.UTF_8), compact.readString());
+            assertEquals(new String(expected, StandardCharsets.UTF_8), compact.readString());
+        }
+
+        // Malformed input is decoded like the JDK does
+        byte[] malformed = {(byte) 0xC3, 'a', (byte) 0xFF, (byte) 0xE4, (byte) 0xB8};
+        GravSerializer ser = new GravSerializer();
+        ser.writeByteArray(malformed);
+        assertEquals(new String(malformed, StandardCharsets.UTF_8), ser.readString());
+    }
+
+    @Test
+    public void testVarIntZero() {
+        GravSerializer ser = new GravSerializer();
+        ser.writeVarInt(0);
+        ser.writeVarInt(300);
+        assertEquals(3, ser.size());
+        assertEquals(0, ser.readVarInt());
+        assertEquals(300, ser.readVarInt());
+    }
+
+    @Test
+    public void testCompactInts() {
+        int[] ints = {0, 1, -1, 63, -64, 64, 1 << 20, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        int[] sizes = {1, 1, 1, 1, 1, 2, 4, 5, 5};
+        for (int i = 0; i < ints.length; i++) {
+            GravSerializer ser = new GravSerializer();
+            ser.writeCompactInt(ints[i]);
+            assertEquals(sizes[i], ser.size());
+            assertEquals(ints[i], ser.readCompactInt());
+        }
+
+        for (long l : new long[]{0, -1, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            GravSerializer ser = new GravSerializer();
+            ser.writeCompactLong(l);
+            assertEquals(l, ser.readCompactLong());
+        }
+
+        GravSerializer ser = new GravSerializer();
+        ser.setCompact(true);
+        ser.writeString("Test");
+        ser.writeString(null);
+        ser.writeIntArray(new int[]{1, 2});
+        assertEquals(1 + 4 + 1 + 1 + 8, ser.size());
+        assertEquals("Test", ser.readString());
+        assertEquals(null, ser.readString());
+        assert Arrays.equals(new int[]{1, 2}, ser.readIntArray());
+    }
+
     @Test
     public void testBigInteger() {
         Random random = new Random();
@@ -213,4 +379,135 @@ public class TestGravSerializer {
 
         assert ch == ch2;
     }
+
+    @Test
+    public void testNestedLayout() {
+        GravSerializer ser = new GravSerializer();
+        ser.writeObject(new GravSerializer(new byte[]{1, 2, 3}));
+
+        // Type, class name, then the payload with its length in front
+        GravSerializer expected = new GravSerializer();
+        expected.writeByte(ser.toByteArray()[0]);
+        expected.writeString(GravSerializer.class.getName());
+        expected.writeInt(7);
+        expected.writeInt(3);
+        expected.append(new byte[]{1, 2, 3});
+        assert Arrays.equals(expected.toByteArray(), ser.toByteArray());
+
+        GravSerializer res = ser.readObject();
+        assert Arrays.equals(new byte[]{1, 2, 3}, res.toByteArray());
+    }
+
+    @Test
+    public void testSlices() {
+        GravSerializer ser = new GravSerializer();
+        ser.writeInt(5);
+        ser.writeSerializer(new GravSerializer(new byte[]{1, 2, 3, 4}));
+        ser.writeInt(6);
+
+        assertEquals(5, ser.readInt());
+        GravSerializer view = ser.readSerializer();
+        assertEquals(6, ser.readInt());
+        assertEquals(4, view.size());
+        assertEquals(4, view.readByte() + view.getRemaining());
+        assert Arrays.equals(new byte[]{2, 3}, ser.slice(9, 2).toByteArray());
+        assertThrows(IndexOutOfBoundsException.class, () -> ser.slice(14, 4));
+
+        // Writes on either side are not visible to the other
+        view.setWritePosition(0);
+        view.writeByte((byte) 9);
+        view.setWritePosition(4);
+        int end = ser.getWritePosition();
+        ser.setWritePosition(4);
+        ser.writeInt(8);
+        ser.setWritePosition(end);
+        assert Arrays.equals(new byte[]{9, 2, 3, 4}, view.toByteArray());
+        ser.setReadPosition(4);
+        assertEquals(8, ser.readInt());
+        assertEquals(1, ser.readByte());
+    }
+
+    @Test
+    public void testStreamingRead() throws IOException {
+        Random random = new Random();
+        GravSerializer ser = new GravSerializer();
+        for (int i = 0; i < 1000; i++) {
+            ser.writeInt(i);
+            ser.writeByteArray(createRandomBytes(random.nextInt(100)));
+        }
+        byte[] data = ser.toByteArray();
+
+        GravSerializer in = GravSerializer.streaming(new ByteArrayInputStream(data), null, 64);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(ser.getReadPosition(), in.getReadPosition());
+            assertEquals(ser.readInt(), in.readInt());
+            in.mark();
+            byte[] expected = ser.readByteArray();
+            assert Arrays.equals(expected, in.readByteArray());
+            in.reset();
+            assert Arrays.equals(expected, in.readByteArray());
+        }
+        assert !in.hasNext();
+        assert in.trueSize() < 200;
+
+        // Data before the window is gone
+        GravSerializer skipped = GravSerializer.streaming(new ByteArrayInputStream(data), null, 64);
+        assertEquals(1000, skipped.skip(1000));
+        assertEquals(1000, skipped.getReadPosition());
+        assertThrows(IllegalStateException.class, () -> skipped.setReadPosition(0));
+        assertEquals(data.length - 1000, skipped.skip(data.length));
+    }
+
+    @Test
+    public void testStreamingWrite() throws IOException {
+        GravSerializer expected = new GravSerializer();
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        GravSerializer out = GravSerializer.streaming(os, null, 64);
+        for (GravSerializer ser : Arrays.asList(expected, out)) {
+            for (int i = 0; i < 100; i++) {
+                ser.writeString("Value " + i);
+                ser.writeObject(new GravSerializer(new byte[i]));
+            }
+        }
+        assertEquals(expected.getWritePosition(), out.getWritePosition());
+        assert os.size() > 0;
+        assert out.trueSize() < 256;
+        out.close();
+        assert Arrays.equals(expected.toByteArray(), os.toByteArray());
+
+        // Compressed both ways
+        for (Compressor compressor : Arrays.asList(StandardCompressor.instance, ZstdCompressor.instance)) {
+            os = new ByteArrayOutputStream();
+            out = GravSerializer.streaming(os, compressor, 64);
+            out.append(expected.toByteArray());
+            out.close();
+            assert Arrays.equals(expected.toByteArray(), new GravSerializer(new ByteArrayInputStream(os.toByteArray()), compressor).toByteArray());
+
+            GravSerializer in = GravSerializer.streaming(new ByteArrayInputStream(os.toByteArray()), compressor, 64);
+            for (int i = 0; i < 100; i++) {
+                assertEquals("Value " + i, in.readString());
+                assertEquals(i, in.<GravSerializer>readObject().size());
+            }
+            assert !in.hasNext();
+        }
+    }
+
+    @Test
+    public void testFiles(@TempDir Path dir) throws IOException {
+        byte[] bt = createRandomBytes(10000);
+        GravSerializer ser = new GravSerializer();
+        ser.writeByteArray(bt);
+
+        Path file = dir.resolve("data.bin");
+        ser.save(file);
+        assert Arrays.equals(ser.toByteArray(), Files.readAllBytes(file));
+        assert Arrays.equals(bt, GravSerializer.load(file).readByteArray());
+
+        // Replaced in place, without leaving temporary files behind
+        ser.save(file, StandardCompressor.instance);
+        assert Arrays.equals(bt, GravSerializer.load(file, StandardCompressor.instance).readByteArray());
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
 }
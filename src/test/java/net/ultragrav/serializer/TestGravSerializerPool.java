@@ -0,0 +1,66 @@
+package net.ultragrav.serializer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TestGravSerializerPool {
+    @Test
+    public void testReuse() {
+        GravSerializerPool pool = new GravSerializerPool();
+
+        GravSerializer ser = pool.acquire();
+        ser.writeString("Test");
+        ser.readInt();
+        pool.release(ser);
+
+        GravSerializer reused = pool.acquire();
+        assert reused == ser;
+        assertEquals(0, reused.size());
+        assertEquals(0, reused.getReadPosition());
+
+        // Too small for what is asked, so a new one
+        pool.release(reused);
+        GravSerializer large = pool.acquire(4096);
+        assert large != ser;
+        assert large.trueSize() >= 4096;
+    }
+
+    @Test
+    public void testLimits() {
+        GravSerializerPool pool = new GravSerializerPool(1024, 1);
+
+        GravSerializer huge = pool.acquire(4096);
+        pool.release(huge);
+        assert pool.acquire(4096) != huge;
+
+        GravSerializer one = pool.acquire();
+        GravSerializer two = pool.acquire();
+        pool.release(one);
+        pool.release(two);
+        assert pool.acquire() == one;
+        assert pool.acquire() != two;
+
+        // Slices still point into its array
+        GravSerializer sliced = pool.acquire();
+        sliced.writeInt(1);
+        GravSerializer slice = sliced.slice(0, 4);
+        pool.release(sliced);
+        assert pool.acquire() != sliced;
+        assertEquals(1, slice.readInt());
+    }
+
+    @Test
+    public void testLease() {
+        GravSerializerPool pool = new GravSerializerPool();
+
+        GravSerializer ser;
+        try (GravSerializerPool.Lease lease = pool.lease()) {
+            ser = lease.serializer();
+            ser.writeInt(5);
+        }
+        assertThrows(IllegalStateException.class, () -> pool.release(ser));
+        assert pool.acquire() == ser;
+    }
+}
@@ -3,18 +3,31 @@ package net.ultragrav.serializer;
 import net.ultragrav.serializer.classes.JsonMetaSerializables;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Target;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class TestJsonMeta {
     @Test
@@ -172,4 +185,562 @@ public class TestJsonMeta {
 
         assert object.getName().equals(deserialized.getName());
     }
+
+    @Test
+    public void testLazyValues() {
+        JsonMeta meta = new JsonMeta();
+        meta.set("one", 1);
+        meta.set("nested.name", "Test");
+
+        GravSerializer ser = new GravSerializer();
+        meta.serialize(ser);
+        JsonMeta lazy = JsonMeta.deserialize(ser, false);
+
+        // Lazily kept values must not depend on the serializer they were read from
+        ser.setWritePosition(0);
+        for (int i = 0; i < 64; i++) {
+            ser.writeInt(-1);
+        }
+
+        assert lazy.<Integer>get("one") == 1;
+        assert lazy.get("nested.name").equals("Test");
+        assert lazy.copy().get("nested.name").equals("Test");
+    }
+
+    @Test
+    public void testStreaming() throws IOException {
+        JsonMeta meta = new JsonMeta();
+        for (int i = 0; i < 200; i++) {
+            meta.set("values.key" + i, "Value " + i);
+            meta.set("objects.key" + i, new JsonMetaSerializables.TestClassOne(UUID.randomUUID(), "Name " + i, i, i));
+        }
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        GravSerializer out = GravSerializer.streaming(os, null, 128);
+        meta.serialize(out);
+        out.close();
+
+        GravSerializer ser = new GravSerializer();
+        meta.serialize(ser);
+        assert Arrays.equals(ser.toByteArray(), os.toByteArray());
+
+        JsonMeta read = JsonMeta.deserialize(GravSerializer.streaming(new ByteArrayInputStream(os.toByteArray()), null, 32));
+        JsonMeta lazy = JsonMeta.deserialize(GravSerializer.streaming(new ByteArrayInputStream(os.toByteArray()), null, 32), false);
+        for (int i = 0; i < 200; i++) {
+            assertEquals("Value " + i, read.get("values.key" + i));
+            assertEquals("Value " + i, lazy.get("values.key" + i));
+            assert lazy.get("objects.key" + i) instanceof JsonMetaSerializables.TestClassOne;
+        }
+    }
+
+    @Test
+    public void testKeyInterning() {
+        List<JsonMeta> players = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            JsonMeta player = new JsonMeta();
+            player.set("name", "Player " + i);
+            player.set("stats.kills", i);
+            player.set("stats.deaths", i * 2);
+            player.set("object", new JsonMetaSerializables.TestClassOne(UUID.randomUUID(), "Name " + i, i, i));
+            players.add(player);
+        }
+        JsonMeta meta = new JsonMeta();
+        meta.set("players", players);
+
+        GravSerializer plain = new GravSerializer();
+        meta.serialize(plain);
+
+        GravSerializer interned = new GravSerializer();
+        interned.setKeyInterning(true);
+        meta.serialize(interned);
+        assert interned.size() < plain.size();
+
+        // Readers need no configuration, lazily read values keep their own key table
+        for (boolean complete : new boolean[]{true, false}) {
+            List<JsonMeta> read = JsonMeta.deserialize(new GravSerializer(interned.toByteArray()), complete).get("players");
+            assertEquals(100, read.size());
+            for (int i = 0; i < 100; i++) {
+                JsonMeta player = read.get(i);
+                assertEquals("Player " + i, player.get("name"));
+                assertEquals(i * 2, (int) player.get("stats.deaths"));
+                assert player.get("object") instanceof JsonMetaSerializables.TestClassOne;
+            }
+
+            // Documents share their key instances
+            Set<String> first = read.get(0).asShallowMap().keySet();
+            for (String key : read.get(99).asShallowMap().keySet()) {
+                assert first.stream().anyMatch(k -> k == key);
+            }
+        }
+
+        // Reading the compact form
+        GravSerializer compact = new GravSerializer();
+        compact.setKeyInterning(true);
+        compact.setCompact(true);
+        meta.serialize(compact);
+        assert compact.size() < interned.size();
+        List<JsonMeta> read = JsonMeta.deserialize(compact).get("players");
+        assertEquals(42, (int) read.get(42).get("stats.kills"));
+    }
+
+    @Test
+    public void testKeyInterningReuse() {
+        JsonMeta first = new JsonMeta();
+        first.set("name", "first");
+        first.set("stats.kills", 1);
+        JsonMeta second = new JsonMeta();
+        second.set("level", 2);
+        second.set("stats.kills", 2);
+        second.set("name", "second");
+
+        // Serializing twice into a reused buffer writes the keys in full again
+        GravSerializer ser = new GravSerializer();
+        ser.setKeyInterning(true);
+        first.serialize(ser);
+        ser.setWritePosition(0);
+        second.serialize(ser);
+        second.serialize(ser);
+        JsonMeta read = JsonMeta.deserialize(new GravSerializer(ser.toByteArray()));
+        assertEquals("second", read.get("name"));
+        assertEquals(2, (int) read.get("level"));
+        assertEquals(2, (int) JsonMeta.deserialize(ser).get("stats.kills"));
+
+        // Reading in between doesn't shift the ids of later writes
+        ser = new GravSerializer();
+        ser.setKeyInterning(true);
+        first.serialize(ser);
+        assertEquals("first", JsonMeta.deserialize(ser).get("name"));
+        second.serialize(ser);
+        GravSerializer copy = new GravSerializer(ser.toByteArray());
+        assertEquals(1, (int) JsonMeta.deserialize(copy).get("stats.kills"));
+        read = JsonMeta.deserialize(copy);
+        assertEquals("second", read.get("name"));
+        assertEquals(2, (int) read.get("level"));
+    }
+
+    @Test
+    public void testLazy() throws IOException {
+        JsonMeta meta = new JsonMeta();
+        for (int i = 0; i < 50; i++) {
+            meta.set("field" + i, "Value " + i);
+            meta.set("nested.deeper.field" + i, i);
+            meta.set("objects.object" + i, new JsonMetaSerializables.TestClassOne(UUID.randomUUID(), "Name " + i, i, i));
+        }
+        meta.set("list", Arrays.asList(1, 2, 3));
+
+        for (boolean internKeys : new boolean[]{false, true}) {
+            GravSerializer ser = new GravSerializer();
+            ser.setKeyInterning(internKeys);
+            meta.serialize(ser);
+            ser.writeInt(42);
+
+            JsonMeta lazy = JsonMeta.deserializeLazy(ser);
+            assertEquals(42, ser.readInt());
+            // The bytes are shared, not copied
+            assert ser.isShared();
+
+            assertEquals("Value 7", lazy.get("field7"));
+            assertEquals(3, (int) lazy.get("nested.deeper.field3"));
+            assertEquals(Arrays.asList(1, 2, 3), lazy.get("list"));
+            assert lazy.has("objects.object9");
+            assert !lazy.has("objects.missing");
+            assertEquals(meta.getKeys().size(), lazy.getKeys().size());
+
+            lazy.set("nested.other", "Set");
+            lazy.remove("field8");
+
+            // Entries that were not accessed are written back as they were read
+            GravSerializer out = new GravSerializer();
+            lazy.serialize(out);
+            JsonMeta read = JsonMeta.deserialize(out);
+            assertEquals("Set", read.get("nested.other"));
+            assert !read.has("field8");
+            read.set("nested.other", null);
+            read.set("field8", "Value 8");
+            assertEquals(meta.toString(), read.toString());
+            assertEquals(meta.get("objects.object5").toString(), read.get("objects.object5").toString());
+        }
+
+        // Streaming sources are copied
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        GravSerializer out = GravSerializer.streaming(os, null, 128);
+        meta.serialize(out);
+        out.close();
+        JsonMeta lazy = JsonMeta.deserializeLazy(GravSerializer.streaming(new ByteArrayInputStream(os.toByteArray()), null, 32));
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, (int) lazy.get("nested.deeper.field" + i));
+            assertEquals("Value " + i, lazy.get("field" + i));
+        }
+    }
+
+    @Test
+    public void testReadPaths() {
+        JsonMeta meta = new JsonMeta();
+        meta.set("name", "Player");
+        meta.set("stats.Bedwars.kills", 12);
+        meta.set("stats.Bedwars.deaths", 3);
+        meta.set("stats.Skywars.kills", 7);
+        meta.set("history", Arrays.asList(new JsonMeta().set("kills", 1), new JsonMeta().set("kills", 2)));
+        meta.set("object", new JsonMetaSerializables.TestClassOne(UUID.randomUUID(), "Name", 1, 2));
+
+        for (boolean compact : new boolean[]{false, true}) {
+            GravSerializer ser = new GravSerializer();
+            ser.setCompact(compact);
+            ser.setKeyInterning(compact);
+            meta.serialize(ser);
+            ser.setCompact(false);
+            ser.writeInt(42);
+
+            Map<String, Object> values = JsonMeta.readPaths(ser, "stats.Bedwars.kills", "stats.Skywars",
+                    "stats.Skywars.kills", "name.length", "missing", "stats.missing.kills", "object");
+            assertEquals(42, ser.readInt());
+
+            assertEquals(4, values.size());
+            assertEquals(12, values.get("stats.Bedwars.kills"));
+            assertEquals(7, values.get("stats.Skywars.kills"));
+            assertEquals(7, (int) ((JsonMeta) values.get("stats.Skywars")).get("kills"));
+            assertEquals(meta.get("object").toString(), values.get("object").toString());
+        }
+    }
+
+    @Test
+    public void testMerge() {
+        for (boolean internKeys : new boolean[]{false, true}) {
+            JsonMeta meta = new JsonMeta(true);
+            meta.set("name", "Player");
+            meta.set("level", 5);
+            meta.set("stats.Bedwars.kills", 12);
+            meta.set("stats.Bedwars.deaths", 3);
+            meta.set("stats.Skywars.kills", 7);
+            meta.set("settings.language", "en_US");
+
+            GravSerializer full = new GravSerializer();
+            full.setKeyInterning(internKeys);
+            meta.serialize(full);
+            full.writeInt(42);
+            meta.getRecord().clear();
+
+            meta.set("stats.Bedwars.kills", 13);
+            meta.remove("name");
+            meta.set("added.deep", "Added");
+            meta.set("level", new JsonMeta().set("value", 6).set("removed", null));
+            meta.set("settings", 1);
+
+            GravSerializer reduced = new GravSerializer();
+            meta.serialize(reduced, true);
+
+            JsonMeta expected = JsonMeta.deserialize(new GravSerializer(full.toByteArray()));
+            expected.putAll(JsonMeta.deserialize(new GravSerializer(reduced.toByteArray())));
+            assertEquals(meta.asFlatMap(), expected.asFlatMap());
+
+            for (boolean internOut : new boolean[]{false, true}) {
+                full.setReadPosition(0);
+                reduced.setReadPosition(0);
+                GravSerializer out = new GravSerializer();
+                out.setKeyInterning(internOut);
+                JsonMeta.merge(full, reduced, out);
+                assertEquals(42, full.readInt());
+                assert !reduced.hasNext();
+
+                assertEquals(expected.asFlatMap(), JsonMeta.deserialize(out).asFlatMap());
+            }
+        }
+    }
+
+    @Test
+    public void testPaths() {
+        for (String delimiter : new String[]{"\\.", "/", "\\|", ":", "\\s", "a", "[.]"}) {
+            for (String path : new String[]{"", "a", "a.b", "a.b.c", ".a", "a.", "a..b", "..", "a/b//", "x|y", "s s", "abcab", "a:b.c"}) {
+                assert Arrays.equals(path.split(delimiter), JsonPath.split(path, delimiter)) : delimiter + " " + path;
+            }
+        }
+
+        JsonPath kills = JsonMeta.path("stats.Bedwars.kills");
+        assertEquals("stats.Bedwars.kills", kills.toString());
+        assertEquals(kills, JsonPath.of("stats/Bedwars/kills", "/"));
+
+        JsonMeta meta = new JsonMeta(true);
+        assertEquals(1, (int) meta.getOrSet(kills, 1));
+        assertEquals(1, (int) meta.get("stats.Bedwars.kills"));
+        meta.set(kills, 2);
+        assertEquals(2, (int) meta.get(kills));
+        assert meta.has(kills);
+        assert meta.getRecord().getUpdatedFields().contains("stats");
+
+        meta.remove(kills);
+        assert !meta.has(kills);
+        assertEquals(3, (int) meta.getOrDefault(kills, 3));
+        assertEquals(4, (int) meta.getOrCompute(kills, () -> 4));
+        assertEquals(4, (int) meta.get(kills));
+
+        JsonMeta slashes = new JsonMeta("/");
+        slashes.set("a/b", 1);
+        assertEquals(1, (int) slashes.get(JsonPath.of("a/b", "/")));
+    }
+
+    @Test
+    public void testSharedReads() throws Exception {
+        JsonMeta meta = new JsonMeta();
+        meta.set("stats.kills", 1);
+        CountDownLatch serializing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        meta.set("blocking", (GravSerializable) serializer -> {
+            serializing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            serializer.writeInt(0);
+        });
+        meta.setSharedReads(true);
+        assert meta.<JsonMeta>get("stats").getLock().isSharedReads();
+
+        CompletableFuture<Void> serialize = CompletableFuture.runAsync(() -> meta.serialize(new GravSerializer()));
+        serializing.await();
+        try {
+            // Reads go ahead while the tree is being serialized, writes wait for it
+            assertEquals(1, (int) CompletableFuture.supplyAsync(() -> meta.<Integer>get("stats.kills")).get(5, TimeUnit.SECONDS));
+            assert CompletableFuture.supplyAsync(() -> meta.has("stats.kills")).get(5, TimeUnit.SECONDS);
+            assert CompletableFuture.supplyAsync(() -> meta.asFlatMap()).get(5, TimeUnit.SECONDS).containsKey("stats.kills");
+
+            CompletableFuture<JsonMeta> set = CompletableFuture.supplyAsync(() -> meta.set("stats.kills", 2));
+            Thread.sleep(100);
+            assert !set.isDone();
+            release.countDown();
+            set.get(5, TimeUnit.SECONDS);
+            serialize.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+        }
+        assertEquals(2, (int) meta.get("stats.kills"));
+
+        // Lazily read entries are decoded with the exclusive lock
+        meta.remove("blocking");
+        GravSerializer ser = new GravSerializer();
+        meta.serialize(ser);
+        JsonMeta lazy = JsonMeta.deserializeLazy(ser);
+        lazy.setSharedReads(true);
+        assert lazy.has("stats.kills");
+        assertEquals(2, (int) lazy.get("stats.kills"));
+        assertEquals(2, (int) lazy.get("stats.kills"));
+        assertEquals(meta.asFlatMap(), lazy.asFlatMap());
+    }
+
+    @Test
+    public void testSubtreeLocking() throws Exception {
+        JsonMeta meta = new JsonMeta(true);
+        meta.set("name", "Steve");
+        meta.set("stats.Bedwars.kills", 1);
+        meta.set("stats.Skywars.wins", 1);
+        meta.getRecord().clear();
+        meta.setSubtreeLocking(2);
+
+        JsonMeta bedwars = meta.get("stats.Bedwars");
+        bedwars.getLock().lock();
+        CompletableFuture<JsonMeta> sameSubtree;
+        CompletableFuture<JsonMeta> wholeTree;
+        try {
+            // Other subtrees can change meanwhile, the same one and the tree above it can't
+            CompletableFuture.supplyAsync(() -> meta.set("stats.Skywars.wins", 2)).get(5, TimeUnit.SECONDS);
+            assertEquals(2, (int) CompletableFuture.supplyAsync(() -> meta.<Integer>get("stats.Skywars.wins")).get(5, TimeUnit.SECONDS));
+
+            sameSubtree = CompletableFuture.supplyAsync(() -> meta.set("stats.Bedwars.kills", 2));
+            wholeTree = CompletableFuture.supplyAsync(() -> meta.set("name", "Alex"));
+            Thread.sleep(100);
+            assert !sameSubtree.isDone();
+            assert !wholeTree.isDone();
+        } finally {
+            bedwars.getLock().unlock();
+        }
+        sameSubtree.get(5, TimeUnit.SECONDS);
+        wholeTree.get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, (int) meta.get("stats.Bedwars.kills"));
+        assertEquals("Alex", meta.get("name"));
+        List<String> dirty = meta.<JsonMeta>get("stats").getRecord().getUpdatedFields();
+        dirty.sort(null);
+        assertEquals(Arrays.asList("Bedwars", "Skywars"), dirty);
+
+        // The lock of the root still locks the whole tree
+        CompletableFuture<JsonMeta> subtree;
+        meta.getLock().lock();
+        try {
+            subtree = CompletableFuture.supplyAsync(() -> meta.set("stats.Skywars.wins", 3));
+            Thread.sleep(100);
+            assert !subtree.isDone();
+        } finally {
+            meta.getLock().unlock();
+        }
+        subtree.get(5, TimeUnit.SECONDS);
+
+        // Locking the tree above a subtree while holding its lock fails instead of deadlocking
+        bedwars.getLock().lock();
+        try {
+            assertThrows(IllegalStateException.class, () -> meta.set("name", "Steve"));
+        } finally {
+            bedwars.getLock().unlock();
+        }
+
+        meta.setSubtreeLocking(0);
+        assert bedwars.getLock().getCurrentLock() == meta.getLock().getCurrentLock();
+    }
+
+    @Test
+    public void testTryLock() throws Exception {
+        JsonMeta meta = new JsonMeta();
+        meta.set("stats.Bedwars.kills", 1);
+        meta.set("stats.Skywars.wins", 1);
+        LockStatistics stats = new LockStatistics();
+        meta.setLockMetrics(stats);
+        JsonMeta bedwars = meta.get("stats.Bedwars");
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> hold = CompletableFuture.runAsync(() -> {
+            meta.getLock().lock();
+            try {
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            } finally {
+                meta.getLock().unlock();
+            }
+        });
+        locked.await();
+        try {
+            Thread holder = bedwars.getLock().getHolder();
+            assert holder != null && holder != Thread.currentThread();
+
+            assert !bedwars.getLock().tryLock();
+            assert !bedwars.getLock().tryLock(20, TimeUnit.MILLISECONDS);
+            assert !bedwars.getLock().readLock().tryLock();
+            Thread.currentThread().interrupt();
+            assertThrows(InterruptedException.class, () -> bedwars.getLock().lockInterruptibly());
+
+            assertEquals(4, stats.getFailures());
+            assert stats.getLastHolder() == holder;
+        } finally {
+            release.countDown();
+        }
+        hold.get(5, TimeUnit.SECONDS);
+        assert bedwars.getLock().getHolder() == null;
+        assert bedwars.getLock().tryLock(5, TimeUnit.SECONDS);
+        bedwars.getLock().unlock();
+        assertEquals(stats.getAcquisitions() + stats.getFailures(), Arrays.stream(stats.getWaitHistogram()).sum());
+
+        // Conditions belong to the lock the JsonMeta resolves to
+        Condition changed = bedwars.getLock().newCondition();
+        CompletableFuture<Integer> waiter = CompletableFuture.supplyAsync(() -> {
+            meta.getLock().lock();
+            try {
+                while (bedwars.<Integer>get("kills") < 2) {
+                    changed.awaitUninterruptibly();
+                }
+                return bedwars.get("kills");
+            } finally {
+                meta.getLock().unlock();
+            }
+        });
+        meta.getLock().lock();
+        try {
+            meta.set("stats.Bedwars.kills", 2);
+            changed.signalAll();
+        } finally {
+            meta.getLock().unlock();
+        }
+        assertEquals(2, (int) waiter.get(5, TimeUnit.SECONDS));
+
+        // With subtree locking, tryLock refocuses to the subtree's lock
+        meta.setSubtreeLocking(2);
+        JsonMeta skywars = meta.get("stats.Skywars");
+        skywars.getLock().lock();
+        try {
+            assert CompletableFuture.supplyAsync(() -> {
+                boolean other = bedwars.getLock().tryLock();
+                if (other) {
+                    bedwars.getLock().unlock();
+                }
+                return other && !skywars.getLock().tryLock() && !meta.getLock().tryLock();
+            }).get(5, TimeUnit.SECONDS);
+        } finally {
+            skywars.getLock().unlock();
+        }
+    }
+
+    @Test
+    public void testSnapshot() {
+        JsonMeta meta = new JsonMeta();
+        meta.set("name", "Steve");
+        meta.set("stats.Bedwars.kills", 1);
+        meta.set("stats.Skywars.wins", 2);
+
+        JsonMetaSnapshot first = meta.snapshot();
+        assert meta.snapshot() == first;
+
+        meta.set("stats.Bedwars.kills", 5);
+        meta.set("stats.Bedwars.deaths", 3);
+        meta.remove("name");
+
+        // The old snapshot is unchanged
+        assertEquals("Steve", first.get("name"));
+        assertEquals(1, (int) first.get("stats.Bedwars.kills"));
+        assert !first.has("stats.Bedwars.deaths");
+
+        // Unchanged subtrees are shared
+        JsonMetaSnapshot second = meta.snapshot();
+        assert second != first;
+        assert second.get("stats.Skywars") == first.get("stats.Skywars");
+        assert second.get("stats.Bedwars") != first.get("stats.Bedwars");
+        assertEquals(5, (int) second.get(JsonMeta.path("stats.Bedwars.kills")));
+        assert !second.has("name");
+        assertEquals(meta.asFlatMap(), second.asFlatMap());
+
+        // Snapshots serialize like the JsonMeta they were taken from, including values kept as bytes
+        GravSerializer ser = new GravSerializer();
+        meta.serialize(ser);
+        JsonMeta raw = JsonMeta.deserialize(ser, false);
+        JsonMetaSnapshot rawSnapshot = raw.snapshot();
+        assertEquals(5, (int) rawSnapshot.get("stats.Bedwars.kills"));
+        assertEquals(5, (int) rawSnapshot.get("stats.Bedwars.kills"));
+
+        GravSerializer out = new GravSerializer();
+        rawSnapshot.serialize(out);
+        assertEquals(meta.asFlatMap(), JsonMeta.deserialize(out).asFlatMap());
+    }
+
+    @Test
+    public void testSerializeParallel() {
+        JsonMeta meta = new JsonMeta();
+        for (int i = 0; i < 20; i++) {
+            for (int j = 0; j < 20; j++) {
+                meta.set("members.m" + i + ".stats.s" + j, j);
+                meta.set("members.m" + i + ".positions.p" + j, (GravSerializable) serializer -> serializer.writeInt(1));
+            }
+            meta.set("members.m" + i + ".name", "Member " + i);
+        }
+        meta.set("name", "Guild");
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int settings = 0; settings < 8; settings++) {
+                GravSerializer sequential = new GravSerializer();
+                GravSerializer parallel = new GravSerializer();
+                for (GravSerializer serializer : Arrays.asList(sequential, parallel)) {
+                    serializer.setCompact((settings & 1) != 0);
+                    serializer.setClassNameInterning((settings & 2) != 0);
+                    serializer.setKeyInterning((settings & 4) != 0);
+                }
+                meta.serialize(sequential);
+                meta.serializeParallel(parallel, pool, 10);
+                assert Arrays.equals(sequential.toByteArray(), parallel.toByteArray());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        GravSerializer below = new GravSerializer();
+        meta.serializeParallel(below);
+        assertEquals(5, (int) JsonMeta.deserialize(below).get("members.m3.stats.s5"));
+    }
 }
@@ -0,0 +1,113 @@
+package net.ultragrav.serializer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestJsonMetaDeltaLog {
+    @Test
+    public void testReplay(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("player.log");
+
+        JsonMeta state;
+        try (JsonMetaDeltaLog log = new JsonMetaDeltaLog(path)) {
+            state = log.replay();
+            assert state.getKeys().isEmpty();
+
+            state.set("name", "Player");
+            state.set("stats.Bedwars.kills", 1);
+            state.set("stats.Bedwars.deaths", 2);
+            log.append(state);
+            assert state.getRecord().getUpdatedFields().isEmpty();
+
+            long size = log.size();
+            log.append(state);
+            assertEquals(size, log.size());
+
+            state.set("stats.Bedwars.kills", 5);
+            state.remove("name");
+            log.append(state);
+        }
+
+        try (JsonMetaDeltaLog log = new JsonMetaDeltaLog(path)) {
+            JsonMeta read = log.replay();
+            assertEquals(state.asFlatMap(), read.asFlatMap());
+
+            // Keeps recording changes
+            read.set("stats.Skywars.kills", 3);
+            log.append(read);
+            state.set("stats.Skywars.kills", 3);
+        }
+
+        try (JsonMetaDeltaLog log = new JsonMetaDeltaLog(path)) {
+            assertEquals(state.asFlatMap(), log.replay().asFlatMap());
+        }
+    }
+
+    @Test
+    public void testTornTail(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("player.log");
+
+        JsonMeta state;
+        long valid;
+        try (JsonMetaDeltaLog log = new JsonMetaDeltaLog(path)) {
+            state = log.replay();
+            state.set("kills", 1);
+            log.append(state);
+            valid = log.size();
+
+            state.set("kills", 2);
+            log.append(state);
+        }
+
+        // Lose the end of the last record
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+        try (JsonMetaDeltaLog log = new JsonMetaDeltaLog(path)) {
+            assertEquals(valid, log.size());
+            assertEquals(1, (int) log.replay().get("kills"));
+
+            state.set("kills", 3);
+            log.append(state);
+        }
+
+        // Corrupt the last record
+        byte[] bytes = Files.readAllBytes(path);
+        bytes[bytes.length - 6] ^= 1;
+        Files.write(path, bytes);
+        try (JsonMetaDeltaLog log = new JsonMetaDeltaLog(path)) {
+            assertEquals(valid, log.size());
+            assertEquals(1, (int) log.replay().get("kills"));
+        }
+    }
+
+    @Test
+    public void testCompaction(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("player.log");
+
+        JsonMeta state;
+        try (JsonMetaDeltaLog log = new JsonMetaDeltaLog(path)) {
+            log.setCompactionThreshold(1024);
+            log.setSync(false);
+            state = log.replay();
+            for (int i = 0; i < 200; i++) {
+                state.set("stats.kills", i);
+                state.set("history.match" + (i % 10), "Match " + i);
+                log.append(state);
+                assert log.size() <= 1024;
+            }
+        }
+
+        try (JsonMetaDeltaLog log = new JsonMetaDeltaLog(path)) {
+            assertEquals(state.asFlatMap(), log.replay().asFlatMap());
+        }
+    }
+}
@@ -70,4 +70,18 @@ public class TestJsonMetaSerializable {
 
         assert Objects.equals(test, res);
     }
+
+    @Test
+    public void testStaticParameters() {
+        GravSerializer ser = new GravSerializer();
+        for (int i = 0; i < 3; i++) {
+            ser.writeObject(new JsonMetaSerializables.TestClassStatic(UUID.randomUUID(), i));
+        }
+
+        for (int i = 0; i < 3; i++) {
+            UUID id = UUID.randomUUID();
+            JsonMetaSerializables.TestClassStatic res = ser.readObject(id);
+            assert res.equals(new JsonMetaSerializables.TestClassStatic(id, i));
+        }
+    }
 }
@@ -9,7 +9,9 @@ import org.junit.jupiter.api.Test;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -139,6 +141,30 @@ public class TestSerializers {
         Assertions.assertArrayEquals(test, test2);
     }
 
+    @Test
+    public void testPrimitiveArrays() {
+        int[] ints = ThreadLocalRandom.current().ints(100).toArray();
+        long[] longs = ThreadLocalRandom.current().longs(100).toArray();
+        double[] doubles = ThreadLocalRandom.current().doubles(100).toArray();
+        short[] shorts = {1, -2, 3, Short.MAX_VALUE, Short.MIN_VALUE};
+        float[] floats = {1.5f, -2.25f, Float.MAX_VALUE, Float.MIN_VALUE};
+
+        GravSerializer ser = new GravSerializer();
+        ser.writeObject(ints);
+        ser.writeObject(longs);
+        ser.writeObject(shorts);
+        ser.writeObject(floats);
+        ser.writeObject(doubles);
+        ser.writeObject(new int[0]);
+
+        Assertions.assertArrayEquals(ints, ser.<int[]>readObject());
+        Assertions.assertArrayEquals(longs, ser.<long[]>readObject());
+        Assertions.assertArrayEquals(shorts, ser.<short[]>readObject());
+        Assertions.assertArrayEquals(floats, ser.<float[]>readObject());
+        Assertions.assertArrayEquals(doubles, ser.<double[]>readObject());
+        Assertions.assertArrayEquals(new int[0], ser.<int[]>readObject());
+    }
+
     @Test
     public void testBigInteger() {
         BigInteger test = new BigInteger("123456789101112131415161718192021222324252627282930313233343536373839404142434445464748495051525354555657585960616263646566676869707172737475767778798081828384858687888990919293949596979899100101102103104105106107108109110111112113114115116117118119120121122123124125126127128129130131132133134135136137138139140141142143144145146147148149150151152153154155156157158159160161162163164165166167168169170171172173174175176177178179180181182183184185186187188189190191192193194195196197198199200201202203204205206207208209210211212213214215216217218219220221222223224225226227228229230231232233234235236237238239240241242243244245246247248249250251252253254255256257258259260261262263264265266267268269270271272273274275276277278279280281282283284285286287288289290291292293294295296297298299300301302303304305306307308309310311312313314315316317318319320321322323324325326327328329330331332333334335336337338339340341342343344345346347348349350351352353354355356357358359360361362363364365366367368369370371372373374375376377378379380381382383384385386387388389390391392393394395396397398399400401402403404405406407408409410411412413414415416417418419420421422423424425426427428429430431432433434435436437438439440441442443444445446447448449450451452453454455456457458459460461462463464465466467468469470471472473474475476477478479480481482483484485486487488489490491492493494495496497498499500501502503504505506507508509510511512513514515516517518519520521522523524525526527528529530531532533");
@@ -151,5 +177,213 @@ public class TestSerializers {
         testObject(test);
     }
 
+    public static class SerializableList extends ArrayList<String> implements GravSerializable {
+        @Override
+        public void serialize(GravSerializer serializer) {
+        }
+    }
+
+    @Test
+    public void testDispatchFirstMatch() {
+        // List (9) comes before GravSerializable (11), so the list serializer must win
+        GravSerializer ser = new GravSerializer();
+        ser.writeObject(new SerializableList());
+        Assertions.assertEquals(9 + 1, ser.readByte());
+
+        // JsonMeta is also a GravSerializable but has its own serializer (31)
+        ser = new GravSerializer();
+        ser.writeObject(new JsonMeta());
+        Assertions.assertEquals(31 + 1, ser.readByte());
+    }
+
+    public static class Unregistered {
+        private final String value;
+
+        public Unregistered(String value) {
+            this.value = value;
+        }
+    }
+
+    @Test
+    public void testRegisterInvalidatesDispatch() {
+        Assertions.assertFalse(Serializers.canSerialize(Unregistered.class));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new GravSerializer().writeObject(new Unregistered("a")));
+
+        Serializers.registerSerializer(Unregistered.class, new Serializer<Unregistered>() {
+            @Override
+            public void serialize(GravSerializer serializer, Object t) {
+                serializer.writeString(((Unregistered) t).value);
+            }
+
+            @Override
+            public Unregistered deserialize(GravSerializer serializer, Object... args) {
+                return new Unregistered(serializer.readString());
+            }
+        });
+
+        Assertions.assertTrue(Serializers.canSerialize(Unregistered.class));
+        GravSerializer ser = new GravSerializer();
+        ser.writeObject(new Unregistered("registered"));
+        Assertions.assertEquals("registered", ser.<Unregistered>readObject().value);
+    }
+
+    @Test
+    public void testClassNameInterning() {
+        List<Object> list = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            list.add(new JsonMetaSerializables.TestClassOne(UUID.randomUUID(), RandomUtil.randomStringAlpha(10), i, i));
+            list.add(RandomUtil.randomEnum(Enums.NoAnnotation.class));
+        }
+
+        GravSerializer plain = new GravSerializer();
+        plain.writeObject(list);
+
+        GravSerializer interned = new GravSerializer();
+        interned.setClassNameInterning(true);
+        interned.writeObject(list);
+
+        Assertions.assertTrue(interned.size() < plain.size());
+        Assertions.assertEquals(list, plain.readObject());
+        Assertions.assertEquals(list, interned.readObject());
+    }
+
+    @Test
+    public void testClassNameInterningReuse() {
+        // Reading in between must not shift the ids of later writes
+        GravSerializer ser = new GravSerializer();
+        ser.setClassNameInterning(true);
+        ser.writeObject(Enums.NoAnnotation.SOME_CONSTANT);
+        Assertions.assertEquals(Enums.NoAnnotation.SOME_CONSTANT, ser.readObject());
+        ser.writeObject(Enums.AnnotationOrdinal.OTHER_CONSTANT);
+        ser.writeObject(Enums.NoAnnotation.OTHER_CONSTANT);
+        ser.writeObject(Enums.AnnotationOrdinal.SOME_CONSTANT);
+
+        GravSerializer copy = new GravSerializer(ser.toByteArray());
+        Assertions.assertEquals(Enums.NoAnnotation.SOME_CONSTANT, copy.readObject());
+        Assertions.assertEquals(Enums.AnnotationOrdinal.OTHER_CONSTANT, copy.readObject());
+        Assertions.assertEquals(Enums.NoAnnotation.OTHER_CONSTANT, copy.readObject());
+        Assertions.assertEquals(Enums.AnnotationOrdinal.SOME_CONSTANT, copy.readObject());
+
+        // Overwritten definitions are written again
+        ser = new GravSerializer();
+        ser.setClassNameInterning(true);
+        ser.writeObject(Enums.NoAnnotation.SOME_CONSTANT);
+        ser.setWritePosition(0);
+        ser.writeObject(Enums.AnnotationOrdinal.OTHER_CONSTANT);
+        ser.writeObject(Enums.NoAnnotation.OTHER_CONSTANT);
+        Assertions.assertEquals(Enums.AnnotationOrdinal.OTHER_CONSTANT, ser.readObject());
+        Assertions.assertEquals(Enums.NoAnnotation.OTHER_CONSTANT, ser.readObject());
+
+        ser = new GravSerializer();
+        ser.setClassNameInterning(true);
+        ser.writeObject(Enums.AnnotationOrdinal.SOME_CONSTANT);
+        ser.writeMark();
+        ser.writeObject(Enums.NoAnnotation.SOME_CONSTANT);
+        ser.writeReset();
+        ser.writeObject(Enums.NoAnnotation.OTHER_CONSTANT);
+        ser.writeObject(Enums.AnnotationOrdinal.OTHER_CONSTANT);
+        Assertions.assertEquals(Enums.AnnotationOrdinal.SOME_CONSTANT, ser.readObject());
+        Assertions.assertEquals(Enums.NoAnnotation.OTHER_CONSTANT, ser.readObject());
+        Assertions.assertEquals(Enums.AnnotationOrdinal.OTHER_CONSTANT, ser.readObject());
+
+        // Filling in a length and moving forward again keeps the definitions that were skipped over
+        ser = new GravSerializer();
+        ser.setClassNameInterning(true);
+        ser.writeInt(0);
+        ser.writeObject(Enums.NoAnnotation.SOME_CONSTANT);
+        int end = ser.getWritePosition();
+        ser.setWritePosition(0);
+        ser.writeInt(end);
+        ser.setWritePosition(end);
+        ser.writeObject(Enums.AnnotationOrdinal.SOME_CONSTANT);
+        ser.writeObject(Enums.NoAnnotation.OTHER_CONSTANT);
+        Assertions.assertEquals(end, ser.readInt());
+        Assertions.assertEquals(Enums.NoAnnotation.SOME_CONSTANT, ser.readObject());
+        Assertions.assertEquals(Enums.AnnotationOrdinal.SOME_CONSTANT, ser.readObject());
+        Assertions.assertEquals(Enums.NoAnnotation.OTHER_CONSTANT, ser.readObject());
+    }
+
+    @Test
+    public void testClassNameInterningJsonMeta() {
+        JsonMeta meta = new JsonMeta();
+        meta.set("first", new JsonMetaSerializables.TestClassOne(UUID.randomUUID(), "first", 1, 1));
+        meta.set("nested.second", new JsonMetaSerializables.TestClassOne(UUID.randomUUID(), "second", 2, 2));
+        meta.set("enums", Arrays.asList(Enums.NoAnnotation.SOME_CONSTANT, Enums.NoAnnotation.OTHER_CONSTANT));
+
+        GravSerializer ser = new GravSerializer();
+        ser.setClassNameInterning(true);
+        meta.serialize(ser);
+
+        // Values kept as raw bytes must still be readable on their own
+        JsonMeta lazy = JsonMeta.deserialize(new GravSerializer(ser.toByteArray()), false);
+        Assertions.assertEquals(meta.<Object>get("nested.second"), lazy.get("nested.second"));
+        Assertions.assertEquals(meta.<Object>get("first"), lazy.get("first"));
+        Assertions.assertEquals(meta.<Object>get("enums"), lazy.get("enums"));
+
+        JsonMeta eager = JsonMeta.deserialize(ser);
+        Assertions.assertEquals(meta.<Object>get("nested.second"), eager.get("nested.second"));
+        Assertions.assertEquals(meta.<Object>get("enums"), eager.get("enums"));
+    }
+
+    @Test
+    public void testCompact() {
+        List<Object> list = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            list.add(new JsonMetaSerializables.TestClassOne(UUID.randomUUID(), RandomUtil.randomStringAlpha(10), i, i));
+            list.add(RandomUtil.randomEnum(Enums.AnnotationOrdinal.class));
+            list.add(i - 500);
+            list.add((long) -i);
+            list.add(new String[]{"a", null});
+        }
+
+        GravSerializer plain = new GravSerializer();
+        plain.writeObject(list);
+
+        for (boolean interning : new boolean[]{false, true}) {
+            GravSerializer compact = new GravSerializer();
+            compact.setCompact(true);
+            compact.setClassNameInterning(interning);
+            compact.writeObject(list);
+            Assertions.assertTrue(compact.size() < plain.size());
+
+            // Readers need no configuration, and old data is still read as before
+            List<Object> read = new GravSerializer(compact.toByteArray()).readObject();
+            Assertions.assertEquals(list.size(), read.size());
+            for (int i = 0; i < list.size(); i++) {
+                if (list.get(i) instanceof Object[]) {
+                    Assertions.assertArrayEquals((Object[]) list.get(i), (Object[]) read.get(i));
+                } else {
+                    Assertions.assertEquals(list.get(i), read.get(i));
+                }
+            }
+            GravSerializer old = new GravSerializer(plain.toByteArray());
+            old.setCompact(true);
+            Assertions.assertEquals(list.size(), old.<List<Object>>readObject().size());
+        }
+    }
+
+    @Test
+    public void testCompactJsonMeta() {
+        JsonMeta meta = new JsonMeta();
+        meta.set("first", new JsonMetaSerializables.TestClassOne(UUID.randomUUID(), "first", 1, 1));
+        meta.set("nested.second", 2);
+        meta.set("nested.list", Arrays.asList("a", "b", "c"));
+
+        GravSerializer plain = new GravSerializer();
+        meta.serialize(plain);
+        GravSerializer ser = new GravSerializer();
+        ser.setCompact(true);
+        meta.serialize(ser);
+        Assertions.assertTrue(ser.size() < plain.size());
+
+        JsonMeta lazy = JsonMeta.deserialize(new GravSerializer(ser.toByteArray()), false);
+        Assertions.assertEquals(meta.<Object>get("first"), lazy.get("first"));
+        Assertions.assertEquals(meta.<Object>get("nested.list"), lazy.get("nested.list"));
+
+        JsonMeta eager = JsonMeta.deserialize(ser);
+        Assertions.assertEquals(2, eager.<Integer>get("nested.second"));
+        Assertions.assertEquals(meta.<Object>get("nested.list"), eager.get("nested.list"));
+    }
+
     // TODO: Test remaining serializers
 }
@@ -58,4 +58,22 @@ public class JsonMetaSerializables {
             return meta;
         }
     }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class TestClassStatic implements JsonMetaSerializable {
+        public UUID id;
+        public int value;
+
+        public static TestClassStatic deserialize(JsonMeta meta, UUID id) {
+            return new TestClassStatic(id, meta.get("value"));
+        }
+
+        @Override
+        public JsonMeta serialize() {
+            JsonMeta meta = new JsonMeta();
+            meta.set("value", value);
+            return meta;
+        }
+    }
 }